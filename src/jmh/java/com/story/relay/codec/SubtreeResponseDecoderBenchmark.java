@@ -0,0 +1,125 @@
+package com.story.relay.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.story.relay.dto.SubtreeRegenerationResponseDto;
+import com.story.relay.dto.SubtreeRegenerationResponseDto.RegeneratedNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /regenerate-subtree response decoding on trees of 1k-100k nodes (branching 4)
+ * readValue    - ObjectMapper on the aggregated body (what bodyToMono does)
+ * decodeTree   - SubtreeResponseDecoder fed 8KB buffers, rebuilding the tree
+ * decodeNodes  - SubtreeResponseDecoder fed 8KB buffers, emitting flat node events
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubtreeResponseDecoderBenchmark {
+
+    private static final int CHUNK = 8 * 1024;
+    private static final int BRANCHING = 4;
+
+    @Param({"1000", "10000", "100000"})
+    public int nodes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+    private SubtreeResponseDecoder decoder;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws Exception {
+        decoder = new SubtreeResponseDecoder(objectMapper, 200_000, 64, DataSize.ofGigabytes(1));
+        json = objectMapper.writeValueAsBytes(SubtreeRegenerationResponseDto.builder()
+                .status("success")
+                .message("regenerated")
+                .regeneratedNodes(List.of(tree(nodes)))
+                .totalNodesRegenerated(nodes)
+                .build());
+    }
+
+    @Benchmark
+    public SubtreeRegenerationResponseDto readValue() throws Exception {
+        return objectMapper.readValue(json, SubtreeRegenerationResponseDto.class);
+    }
+
+    @Benchmark
+    public SubtreeRegenerationResponseDto decodeTree() {
+        return decoder.decodeTree(chunks()).block();
+    }
+
+    @Benchmark
+    public Long decodeNodes() {
+        return decoder.decodeNodes(chunks()).count().block();
+    }
+
+    private Flux<DataBuffer> chunks() {
+        return Flux.range(0, (json.length + CHUNK - 1) / CHUNK)
+                .map(i -> bufferFactory.wrap(ByteBuffer.wrap(json, i * CHUNK,
+                        Math.min(CHUNK, json.length - i * CHUNK)).slice()));
+    }
+
+    /**
+     * Breadth-first tree of exactly count nodes; children lists are filled in place
+     */
+    private static RegeneratedNode tree(int count) {
+        RegeneratedNode root = node("root", 0);
+        Deque<RegeneratedNode> open = new ArrayDeque<>();
+        open.add(root);
+        int created = 1;
+        while (created < count) {
+            RegeneratedNode parent = open.poll();
+            for (int i = 0; i < BRANCHING && created < count; i++, created++) {
+                RegeneratedNode child = node(parent.getNodeId() + "-" + i, parent.getDepth() + 1);
+                parent.getChildren().add(child);
+                open.add(child);
+            }
+        }
+        return root;
+    }
+
+    private static RegeneratedNode node(String id, int depth) {
+        return RegeneratedNode.builder()
+                .nodeId(id)
+                .text("주인공은 갈림길 앞에서 잠시 망설였다. 바람이 차갑게 불어왔다. ".repeat(4))
+                .depth(depth)
+                .choices(List.of(
+                        SubtreeRegenerationResponseDto.ChoiceDto.builder()
+                                .text("왼쪽 길로 간다").tags(List.of("courage")).immediateReaction("발걸음을 옮긴다").build(),
+                        SubtreeRegenerationResponseDto.ChoiceDto.builder()
+                                .text("오른쪽 길로 간다").tags(List.of("caution")).immediateReaction("숨을 고른다").build()))
+                .details(RegeneratedNode.NodeDetails.builder()
+                        .situation("갈림길")
+                        .npcEmotions(Map.of("안내인", "불안"))
+                        .tags(List.of("branch", "tension"))
+                        .build())
+                .children(new ArrayList<>())
+                .build();
+    }
+}
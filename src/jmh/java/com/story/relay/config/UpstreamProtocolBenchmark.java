@@ -0,0 +1,139 @@
+package com.story.relay.config;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP/1.1 vs h2c (prior knowledge) towards a local stub that behaves like the RAG chat endpoint
+ * Each invocation fires `concurrency` chat calls at once through a pool configured the way
+ * WebClientConfig configures ai-servers.rag (same max-connections, HTTP/2 allocation strategy).
+ *
+ * SampleTime reports the per-burst latency distribution (p99 included);
+ * peakConnections / bursts is the mean number of TCP connections open at the stub during a burst.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UpstreamProtocolBenchmark {
+
+    private static final String CHAT_REPLY = "{\"reply\":\"안녕하세요, 여행자여. 무엇을 도와드릴까요?\"}";
+    private static final String CHAT_REQUEST =
+            "{\"session_id\":\"char-1\",\"message\":\"오늘 성에서 무슨 일이 있었나요?\",\"max_tokens\":256}";
+
+    @Param({"HTTP11", "H2C"})
+    public String protocol;
+
+    @Param({"256"})
+    public int concurrency;
+
+    /**
+     * Simulated RAG server think time per call
+     */
+    @Param({"20"})
+    public int upstreamDelayMillis;
+
+    private final AtomicLong openConnections = new AtomicLong();
+    private final AtomicLong peakConnections = new AtomicLong();
+
+    private DisposableServer stub;
+    private ConnectionProvider provider;
+    private HttpClient client;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Connections {
+        public long peakConnections;
+        public long bursts;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        stub = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .doOnChannelInit((observer, channel, remoteAddress) -> {
+                    peakConnections.accumulateAndGet(openConnections.incrementAndGet(), Math::max);
+                    channel.closeFuture().addListener(future -> openConnections.decrementAndGet());
+                })
+                .route(routes -> routes.post("/api/ai/chat", (request, response) -> response
+                        .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                        .sendString(request.receive().aggregate().asString()
+                                .then(Mono.delay(Duration.ofMillis(upstreamDelayMillis)))
+                                .thenReturn(CHAT_REPLY))))
+                .bindNow();
+
+        // Mirrors the rag pool in application.yml (max-connections 100, max-concurrent-streams 100)
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("benchmark-" + protocol)
+                .maxConnections(100)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofSeconds(30));
+        boolean http2 = "H2C".equals(protocol);
+        if (http2) {
+            builder.allocationStrategy(Http2AllocationStrategy.builder()
+                    .maxConnections(100)
+                    .maxConcurrentStreams(100)
+                    .minConnections(1)
+                    .build());
+        }
+        provider = builder.build();
+
+        client = HttpClient.create(provider)
+                .baseUrl("http://127.0.0.1:" + stub.port())
+                .protocol(http2 ? HttpProtocol.H2C : HttpProtocol.HTTP11)
+                .headers(headers -> headers.set(HttpHeaderNames.CONTENT_TYPE, "application/json"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        provider.disposeLater().block(Duration.ofSeconds(10));
+        stub.disposeNow();
+    }
+
+    @Benchmark
+    public long chatBurst(Connections connections) {
+        peakConnections.set(openConnections.get());
+
+        Long replies = Flux.range(0, concurrency)
+                .flatMap(i -> client.post()
+                        .uri("/api/ai/chat")
+                        .send((request, outbound) -> outbound.sendString(Mono.just(CHAT_REQUEST)))
+                        .responseContent()
+                        .aggregate()
+                        .asString(), concurrency)
+                .count()
+                .block(Duration.ofSeconds(60));
+
+        connections.peakConnections += peakConnections.get();
+        connections.bursts++;
+        return replies == null ? 0 : replies;
+    }
+}
@@ -0,0 +1,110 @@
+package com.story.relay.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Map&lt;String,Object&gt; pass-through used by AiController.analyzeNovel and the other schemaless endpoints
+ *
+ * inbound  - decode request body to Map (controller) and re-encode it (AnalysisAiClient bodyValue)
+ * roundTrip - inbound plus decoding the upstream reply to Map and encoding it back to the caller
+ * streamingPeek - pass-through mode, inspecting only the logged fields while the buffers stream past
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms512m", "-Xmx512m"})
+public class MapPassThroughBenchmark {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * Novel text length in characters (Korean, 3 bytes per character in UTF-8)
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int novelLength;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private byte[] requestJson;
+    private byte[] responseJson;
+
+    @Setup
+    public void setup() throws Exception {
+        String sentence = "그날 밤, 성의 정원에는 달빛이 고요히 내려앉았다. ";
+        String novelText = sentence.repeat(novelLength / sentence.length() + 1).substring(0, novelLength);
+
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("novelText", novelText);
+        request.put("title", "벤치마크 소설");
+        request.put("selectedGaugeIds", List.of("hope", "trust"));
+        requestJson = objectMapper.writeValueAsBytes(request);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("summary", novelText.substring(0, Math.min(2000, novelText.length())));
+        response.put("characters", List.of(Map.of("name", "로미오", "description", sentence.repeat(20))));
+        response.put("gauges", List.of(Map.of("id", "hope", "name", "희망")));
+        responseJson = objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] inbound() throws Exception {
+        Map<String, Object> request = objectMapper.readValue(requestJson, MAP_TYPE);
+        return objectMapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public byte[] roundTrip() throws Exception {
+        Map<String, Object> request = objectMapper.readValue(requestJson, MAP_TYPE);
+        byte[] upstreamBody = objectMapper.writeValueAsBytes(request);
+
+        Map<String, Object> reply = objectMapper.readValue(responseJson, MAP_TYPE);
+        byte[] downstreamBody = objectMapper.writeValueAsBytes(reply);
+
+        return upstreamBody.length > downstreamBody.length ? upstreamBody : downstreamBody;
+    }
+
+    /**
+     * Raw pass-through mode: the body streams through in 8KB buffers with only a field peek
+     */
+    @Benchmark
+    public long streamingPeek() {
+        JsonFieldPeek peek = new JsonFieldPeek(Set.of("novelText"));
+        for (int offset = 0; offset < requestJson.length; offset += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, requestJson.length - offset);
+            peek.feed(DefaultDataBufferFactory.sharedInstance.wrap(ByteBuffer.wrap(requestJson, offset, length)));
+        }
+        return peek.getBytes() + peek.getFieldBytes("novelText");
+    }
+
+    /**
+     * Baseline: copying the bytes once, as a raw pass-through would
+     */
+    @Benchmark
+    public byte[] rawCopy() {
+        return Arrays.copyOf(requestJson, requestJson.length);
+    }
+}
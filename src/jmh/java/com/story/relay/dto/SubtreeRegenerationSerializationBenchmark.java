@@ -0,0 +1,100 @@
+package com.story.relay.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of SubtreeRegenerationResponseDto with recursive children trees
+ * depth x branching: 4x3 = 120 nodes, 6x3 = 1092 nodes, 8x2 = 510 nodes (deep and narrow)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubtreeRegenerationSerializationBenchmark {
+
+    @Param({"4:3", "6:3", "8:2"})
+    public String shape;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SubtreeRegenerationResponseDto response;
+    private byte[] json;
+
+    @Setup
+    public void setup() throws Exception {
+        String[] parts = shape.split(":");
+        int depth = Integer.parseInt(parts[0]);
+        int branching = Integer.parseInt(parts[1]);
+
+        List<SubtreeRegenerationResponseDto.RegeneratedNode> roots = List.of(node("root", 0, depth, branching));
+        response = SubtreeRegenerationResponseDto.builder()
+                .status("success")
+                .message("regenerated")
+                .regeneratedNodes(roots)
+                .totalNodesRegenerated(count(roots))
+                .build();
+        json = objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public SubtreeRegenerationResponseDto deserialize() throws Exception {
+        return objectMapper.readValue(json, SubtreeRegenerationResponseDto.class);
+    }
+
+    static SubtreeRegenerationResponseDto.RegeneratedNode node(String id, int level, int depth, int branching) {
+        List<SubtreeRegenerationResponseDto.RegeneratedNode> children = new ArrayList<>();
+        if (level < depth) {
+            for (int i = 0; i < branching; i++) {
+                children.add(node(id + "-" + i, level + 1, depth, branching));
+            }
+        }
+
+        return SubtreeRegenerationResponseDto.RegeneratedNode.builder()
+                .nodeId(id)
+                .text("주인공은 갈림길 앞에서 잠시 망설였다. 바람이 차갑게 불어왔다. ".repeat(4))
+                .depth(level)
+                .choices(List.of(
+                        SubtreeRegenerationResponseDto.ChoiceDto.builder()
+                                .text("왼쪽 길로 간다").tags(List.of("courage")).immediateReaction("발걸음을 옮긴다").build(),
+                        SubtreeRegenerationResponseDto.ChoiceDto.builder()
+                                .text("오른쪽 길로 간다").tags(List.of("caution")).immediateReaction("숨을 고른다").build()))
+                .details(SubtreeRegenerationResponseDto.RegeneratedNode.NodeDetails.builder()
+                        .situation("갈림길")
+                        .npcEmotions(Map.of("안내인", "불안"))
+                        .tags(List.of("branch", "tension"))
+                        .build())
+                .children(children)
+                .build();
+    }
+
+    private static int count(List<SubtreeRegenerationResponseDto.RegeneratedNode> nodes) {
+        int total = 0;
+        for (SubtreeRegenerationResponseDto.RegeneratedNode node : nodes) {
+            total += 1 + count(node.getChildren());
+        }
+        return total;
+    }
+}
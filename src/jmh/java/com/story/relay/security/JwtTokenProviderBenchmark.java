@@ -0,0 +1,90 @@
+package com.story.relay.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request JWT cost in JwtAuthenticationWebFilter
+ *
+ * legacyDoubleParse - previous filter path: validateToken + getUsername, each building a new parser
+ * singleParseUncached - parseClaims with the prebuilt parser, cache disabled
+ * singleParseCached  - parseClaims with the verified-claims cache (steady state: same token per session)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private static final String SECRET =
+            "benchmark-secret-key-must-be-at-least-256-bits-long-for-hs256-algorithm";
+
+    private SecretKey secretKey;
+    private String token;
+    private JwtTokenProvider uncachedProvider;
+    private JwtTokenProvider cachedProvider;
+
+    @Setup
+    public void setup() throws Exception {
+        secretKey = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+        token = Jwts.builder()
+                .subject("benchmark-user")
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(secretKey)
+                .compact();
+
+        uncachedProvider = provider(false);
+        cachedProvider = provider(true);
+    }
+
+    @Benchmark
+    public String legacyDoubleParse() {
+        Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token);
+        return Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    @Benchmark
+    public String singleParseUncached() {
+        return uncachedProvider.parseClaims(token).orElseThrow().getSubject();
+    }
+
+    @Benchmark
+    public String singleParseCached() {
+        return cachedProvider.parseClaims(token).orElseThrow().getSubject();
+    }
+
+    private static JwtTokenProvider provider(boolean cacheEnabled) throws Exception {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        set(provider, "secretKeyString", SECRET);
+        set(provider, "accessTokenValidity", TimeUnit.HOURS.toMillis(1));
+        set(provider, "claimsCacheEnabled", cacheEnabled);
+        set(provider, "claimsCacheMaxSize", 10_000L);
+        provider.init();
+        return provider;
+    }
+
+    private static void set(Object target, String fieldName, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
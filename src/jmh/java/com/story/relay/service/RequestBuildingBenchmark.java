@@ -0,0 +1,81 @@
+package com.story.relay.service;
+
+import com.story.relay.dto.CharacterIndexRequestDto;
+import com.story.relay.dto.ImageGenerationRequestDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Upstream request building in the AI clients
+ *
+ * imagePrompt          - ImageGenerationAiClient.generateImage prompt assembly
+ * characterDescription - RagAiClient.buildCharacterDescription for a fully populated character
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBuildingBenchmark {
+
+    private ImageGenerationRequestDto imageRequest;
+    private CharacterIndexRequestDto characterRequest;
+
+    @Setup
+    public void setup() {
+        imageRequest = ImageGenerationRequestDto.builder()
+                .storyId("story_benchmark")
+                .nodeId("node_1")
+                .episodeTitle("첫 만남")
+                .episodeOrder(1)
+                .nodeText("어두운 복도를 걸어가는 주인공. 멀리서 발소리가 들려온다. ".repeat(15))
+                .situation("긴장감이 감도는 상황")
+                .npcEmotions(Map.of("주인공", "긴장", "로미오", "경계"))
+                .build();
+
+        Map<String, String> relationships = new LinkedHashMap<>();
+        Map<String, Object> additionalInfo = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            relationships.put("캐릭터" + i, "오랜 친구이자 라이벌 관계 " + i);
+            additionalInfo.put("속성" + i, "외모와 능력에 대한 설명 " + i);
+        }
+
+        characterRequest = CharacterIndexRequestDto.builder()
+                .characterId("story_benchmark_로미오")
+                .name("로미오")
+                .description("몬태규 가문의 외아들. ".repeat(40))
+                .personality("열정적이고 충동적인 성격. ".repeat(20))
+                .background("베로나에서 태어나 자랐다. ".repeat(40))
+                .dialogueSamples(IntStream.range(0, 30)
+                        .mapToObj(i -> "대사 샘플 " + i + ": 사랑은 가벼운 날개로 담을 넘었소.")
+                        .collect(Collectors.toList()))
+                .relationships(relationships)
+                .additionalInfo(additionalInfo)
+                .build();
+    }
+
+    @Benchmark
+    public String imagePrompt() {
+        return ImageGenerationAiClient.buildPrompt(imageRequest);
+    }
+
+    @Benchmark
+    public String characterDescription() {
+        return RagAiClient.buildCharacterDescription(characterRequest);
+    }
+}
@@ -0,0 +1,15 @@
+package com.story.relay.codec;
+
+/**
+ * Thrown when a /regenerate-subtree response is malformed or exceeds the decoder limits
+ */
+public class SubtreeDecodingException extends RuntimeException {
+
+    public SubtreeDecodingException(String message) {
+        super(message);
+    }
+
+    public SubtreeDecodingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
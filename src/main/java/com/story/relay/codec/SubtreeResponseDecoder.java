@@ -0,0 +1,353 @@
+package com.story.relay.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.story.relay.dto.SubtreeRegenerationEventDto;
+import com.story.relay.dto.SubtreeRegenerationResponseDto;
+import com.story.relay.dto.SubtreeRegenerationResponseDto.ChoiceDto;
+import com.story.relay.dto.SubtreeRegenerationResponseDto.RegeneratedNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Incremental decoder for /regenerate-subtree responses
+ * Tokens are pulled from Jackson's non-blocking parser as body buffers arrive, and the recursive
+ * children structure is tracked on an explicit stack - no recursion, no aggregated body, and no
+ * codec maxInMemorySize ceiling. Only the small per-node values (choices, details) are bound with
+ * the ObjectMapper. Node count, tree depth and body size are capped (ai-servers.analysis.subtree.decoder.*).
+ *
+ * decodeTree  - rebuilds SubtreeRegenerationResponseDto
+ * decodeNodes - emits each node (without children) once its object closes - children before their
+ *               parent - then a done event; memory stays proportional to tree depth. An event's depth
+ *               is the node's nesting level in the response (1 = regeneratedNodes entry) and its
+ *               parentId the enclosing node's id; the upstream depth/parentId stay on the node itself.
+ */
+@Component
+public class SubtreeResponseDecoder {
+
+    private final ObjectMapper objectMapper;
+    private final JavaType choiceListType;
+    private final int maxNodes;
+    private final int maxDepth;
+    private final long maxBytes;
+
+    public SubtreeResponseDecoder(
+            ObjectMapper objectMapper,
+            @Value("${ai-servers.analysis.subtree.decoder.max-nodes:100000}") int maxNodes,
+            @Value("${ai-servers.analysis.subtree.decoder.max-depth:64}") int maxDepth,
+            @Value("${ai-servers.analysis.subtree.decoder.max-bytes:64MB}") DataSize maxBytes) {
+        this.objectMapper = objectMapper;
+        this.choiceListType = objectMapper.getTypeFactory().constructCollectionType(List.class, ChoiceDto.class);
+        this.maxNodes = maxNodes;
+        this.maxDepth = maxDepth;
+        this.maxBytes = maxBytes.toBytes();
+    }
+
+    public Mono<SubtreeRegenerationResponseDto> decodeTree(Flux<DataBuffer> body) {
+        return Mono.defer(() -> {
+            Decoding decoding = new Decoding(true);
+            return body
+                    .doOnNext(buffer -> {
+                        try {
+                            decoding.feed(buffer);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .then(Mono.fromCallable(decoding::finishTree));
+        });
+    }
+
+    public Flux<SubtreeRegenerationEventDto> decodeNodes(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            Decoding decoding = new Decoding(false);
+            return body
+                    .concatMapIterable(buffer -> {
+                        try {
+                            decoding.feed(buffer);
+                            return decoding.drainEvents();
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .concatWith(Mono.fromCallable(decoding::finishEvents));
+        });
+    }
+
+    /**
+     * Per-response parse state; driven sequentially by one body subscription
+     */
+    private final class Decoding {
+
+        private final boolean buildTree;
+        private final JsonParser parser;
+        private final ByteBufferFeeder feeder;
+        private final Deque<Frame> stack = new ArrayDeque<>();
+        private final List<SubtreeRegenerationEventDto> events = new ArrayList<>();
+
+        private Frame root;
+        private boolean complete;
+        private long bytes;
+        private int nodes;
+
+        // Value of a choices/details field being copied token by token
+        private TokenBuffer capture;
+        private int captureDepth;
+
+        // Nesting of an ignored value being skipped
+        private int skipDepth;
+
+        Decoding(boolean buildTree) {
+            this.buildTree = buildTree;
+            try {
+                this.parser = objectMapper.getFactory().createNonBlockingByteBufferParser();
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to create non-blocking JSON parser", e);
+            }
+            this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        void feed(DataBuffer buffer) {
+            bytes += buffer.readableByteCount();
+            if (bytes > maxBytes) {
+                throw new SubtreeDecodingException("Response exceeds " + maxBytes + " bytes");
+            }
+            try (DataBuffer.ByteBufferIterator views = buffer.readableByteBuffers()) {
+                while (views.hasNext()) {
+                    ByteBuffer view = views.next();
+                    feeder.feedInput(view);
+                    JsonToken token;
+                    while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                        onToken(token);
+                    }
+                }
+            } catch (IOException e) {
+                throw new SubtreeDecodingException("Malformed subtree response: " + e.getMessage(), e);
+            }
+        }
+
+        private void onToken(JsonToken token) throws IOException {
+            if (skipDepth > 0) {
+                if (token.isStructStart()) {
+                    skipDepth++;
+                } else if (token.isStructEnd()) {
+                    skipDepth--;
+                }
+                return;
+            }
+            if (capture != null) {
+                capture.copyCurrentEvent(parser);
+                if (token.isStructStart()) {
+                    captureDepth++;
+                } else if (token.isStructEnd()) {
+                    captureDepth--;
+                }
+                if (captureDepth == 0) {
+                    finishCapture();
+                }
+                return;
+            }
+            if (complete) {
+                throw new SubtreeDecodingException("Unexpected content after subtree response");
+            }
+
+            Frame frame = stack.peek();
+            if (frame == null) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new SubtreeDecodingException("Subtree response must be a JSON object");
+                }
+                root = new Frame(null, 0, true);
+                stack.push(root);
+                return;
+            }
+
+            switch (token) {
+                case FIELD_NAME -> frame.field = parser.currentName();
+                case START_OBJECT -> {
+                    if (frame.inNodeArray) {
+                        startNode(frame);
+                    } else if ("details".equals(frame.field) && !frame.root) {
+                        startCapture();
+                    } else {
+                        skipDepth = 1;
+                    }
+                }
+                case START_ARRAY -> {
+                    if (frame.inNodeArray) {
+                        skipDepth = 1;
+                    } else if ("children".equals(frame.field) && !frame.root
+                            || "regeneratedNodes".equals(frame.field) && frame.root) {
+                        frame.inNodeArray = true;
+                    } else if ("choices".equals(frame.field) && !frame.root) {
+                        startCapture();
+                    } else {
+                        skipDepth = 1;
+                    }
+                }
+                case END_ARRAY -> frame.inNodeArray = false;
+                case END_OBJECT -> endObject();
+                default -> {
+                    if (!frame.inNodeArray) {
+                        scalar(frame);
+                    }
+                }
+            }
+        }
+
+        private void startNode(Frame parent) {
+            int depth = stack.size();   // root response frame sits at the bottom of the stack
+            if (depth > maxDepth) {
+                throw new SubtreeDecodingException("Subtree deeper than " + maxDepth + " levels");
+            }
+            if (++nodes > maxNodes) {
+                throw new SubtreeDecodingException("Subtree has more than " + maxNodes + " nodes");
+            }
+            stack.push(new Frame(parent, depth, false));
+        }
+
+        private void startCapture() throws IOException {
+            capture = new TokenBuffer(objectMapper, false);
+            capture.copyCurrentEvent(parser);
+            captureDepth = 1;
+        }
+
+        private void finishCapture() throws IOException {
+            Frame frame = stack.peek();
+            try (JsonParser captured = capture.asParser(objectMapper)) {
+                if ("choices".equals(frame.field)) {
+                    frame.node.choices(objectMapper.readValue(captured, choiceListType));
+                } else {
+                    frame.node.details(objectMapper.readValue(captured, RegeneratedNode.NodeDetails.class));
+                }
+            }
+            capture = null;
+            frame.field = null;
+        }
+
+        private void scalar(Frame frame) throws IOException {
+            String field = frame.field;
+            frame.field = null;
+            if (field == null || parser.currentToken() == JsonToken.VALUE_NULL) {
+                return;
+            }
+            if (frame.root) {
+                switch (field) {
+                    case "status" -> frame.status = parser.getValueAsString();
+                    case "message" -> frame.message = parser.getValueAsString();
+                    case "totalNodesRegenerated" -> frame.total = parser.getValueAsInt();
+                    default -> {
+                    }
+                }
+                return;
+            }
+            switch (field) {
+                case "id" -> frame.nodeId = parser.getValueAsString();
+                case "text" -> frame.node.text(parser.getValueAsString());
+                case "depth" -> frame.depthValue = parser.getValueAsInt();
+                case "parentId" -> frame.parentId = parser.getValueAsString();
+                default -> {
+                }
+            }
+        }
+
+        private void endObject() {
+            Frame frame = stack.pop();
+            if (frame.root) {
+                complete = true;
+                return;
+            }
+
+            Frame parent = frame.parent;
+            RegeneratedNode.RegeneratedNodeBuilder builder = frame.node
+                    .nodeId(frame.nodeId)
+                    .depth(frame.depthValue)
+                    .parentId(frame.parentId);
+
+            if (buildTree) {
+                parent.children.add(builder.children(frame.children).build());
+            } else {
+                events.add(SubtreeRegenerationEventDto.node(builder.build(), parent.nodeId, frame.level));
+            }
+        }
+
+        List<SubtreeRegenerationEventDto> drainEvents() {
+            if (events.isEmpty()) {
+                return List.of();
+            }
+            List<SubtreeRegenerationEventDto> drained = new ArrayList<>(events);
+            events.clear();
+            return drained;
+        }
+
+        private void endOfInput() {
+            feeder.endOfInput();
+            if (!complete) {
+                throw new SubtreeDecodingException("Truncated subtree response after " + bytes + " bytes");
+            }
+        }
+
+        SubtreeRegenerationResponseDto finishTree() {
+            endOfInput();
+            return SubtreeRegenerationResponseDto.builder()
+                    .status(root.status)
+                    .message(root.message)
+                    .regeneratedNodes(root.children)
+                    .totalNodesRegenerated(root.total != null ? root.total : nodes)
+                    .build();
+        }
+
+        SubtreeRegenerationEventDto finishEvents() {
+            endOfInput();
+            return SubtreeRegenerationEventDto.builder()
+                    .type(SubtreeRegenerationEventDto.DONE)
+                    .status(root.status)
+                    .message(root.message)
+                    .totalNodesRegenerated(root.total != null ? root.total : nodes)
+                    .build();
+        }
+    }
+
+    /**
+     * One open JSON object: the response itself (root) or a node whose children may still be arriving
+     */
+    private static final class Frame {
+        final Frame parent;
+        final int level;
+        final boolean root;
+        final RegeneratedNode.RegeneratedNodeBuilder node = RegeneratedNode.builder();
+        final List<RegeneratedNode> children = new ArrayList<>();
+
+        String field;
+        boolean inNodeArray;
+
+        String nodeId;
+        String parentId;
+        Integer depthValue;
+
+        String status;
+        String message;
+        Integer total;
+
+        Frame(Frame parent, int level, boolean root) {
+            this.parent = parent;
+            this.level = level;
+            this.root = root;
+        }
+    }
+}
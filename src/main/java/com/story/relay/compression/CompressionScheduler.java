@@ -0,0 +1,31 @@
+package com.story.relay.compression;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * CPU-bound workers shared by request and response compression, kept off the Netty event loops
+ * Created on first use - nothing is started unless some body is actually compressed
+ */
+@Component
+public class CompressionScheduler {
+
+    private Scheduler scheduler;
+
+    public synchronized Scheduler get() {
+        if (scheduler == null) {
+            scheduler = Schedulers.newParallel("relay-compression",
+                    Math.max(1, Runtime.getRuntime().availableProcessors() / 2), true);
+        }
+        return scheduler;
+    }
+
+    @PreDestroy
+    public synchronized void dispose() {
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+    }
+}
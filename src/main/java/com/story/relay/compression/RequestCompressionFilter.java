@@ -0,0 +1,212 @@
+package com.story.relay.compression;
+
+import com.story.relay.config.AiServerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compresses request bodies sent to one AI server (ai-servers.&lt;name&gt;.compression.*)
+ * - bodies whose Content-Length is below the threshold go out untouched
+ * - gzip is used from the start when configured; zstd only once the upstream advertises it through
+ *   an Accept-Encoding response header (RFC 7694), and a 415 narrows or disables compression for
+ *   later calls; the refused request itself is re-sent once uncompressed, unless its body is a
+ *   one-shot stream (ONE_SHOT_BODY attribute) that cannot be replayed, in which case the 415 is returned
+ * - compression runs on a dedicated scheduler, never on the Netty event loop
+ *
+ * relay.upstream.compression.bytes{type=raw|compressed} - ratio = compressed / raw
+ * relay.upstream.compression.ratio                       - per request compressed/raw
+ * relay.upstream.compression.cpu                         - CPU time spent compressing per request
+ */
+@Slf4j
+public class RequestCompressionFilter implements ExchangeFilterFunction {
+
+    /**
+     * Request attribute marking a body that can only be subscribed once (e.g. a relayed request stream)
+     */
+    public static final String ONE_SHOT_BODY = RequestCompressionFilter.class.getName() + ".oneShotBody";
+
+    private final String upstream;
+    private final AiServerProperties.Compression settings;
+    private final Scheduler scheduler;
+    private final MeterRegistry meterRegistry;
+    private final List<String> configuredEncodings;
+
+    // Encoding currently in use; null once the upstream has refused every configured encoding
+    private volatile String activeEncoding;
+
+    public RequestCompressionFilter(String upstream, AiServerProperties.Compression settings,
+                                    Scheduler scheduler, MeterRegistry meterRegistry) {
+        this.upstream = upstream;
+        this.settings = settings;
+        this.scheduler = scheduler;
+        this.meterRegistry = meterRegistry;
+        this.configuredEncodings = settings.getEncodings().stream()
+                .map(encoding -> encoding.toLowerCase(Locale.ROOT))
+                .filter(StreamingCompressor::isSupported)
+                .toList();
+        this.activeEncoding = configuredEncodings.contains(StreamingCompressor.GZIP) ? StreamingCompressor.GZIP : null;
+        log.info("Request compression for '{}': encodings={}, threshold={}, initial={}",
+                upstream, configuredEncodings, settings.getThreshold(), activeEncoding);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String encoding = activeEncoding;
+        if (encoding == null || HttpMethod.GET.equals(request.method())) {
+            return next.exchange(request).doOnNext(this::learnFromResponse);
+        }
+
+        AtomicBoolean applied = new AtomicBoolean();
+        ClientRequest compressedRequest = ClientRequest.from(request)
+                .body((message, context) -> request.body()
+                        .insert(new CompressingRequest(message, encoding, applied), context))
+                .build();
+
+        return next.exchange(compressedRequest)
+                .flatMap(response -> {
+                    if (!applied.get() || response.statusCode().value() != HttpStatus.UNSUPPORTED_MEDIA_TYPE.value()) {
+                        learnFromResponse(response);
+                        return Mono.just(response);
+                    }
+                    refuse(encoding, response.headers().asHttpHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+                    if (request.attribute(ONE_SHOT_BODY).isPresent()) {
+                        return Mono.just(response);
+                    }
+                    log.info("Re-sending request to '{}' uncompressed after 415", upstream);
+                    return response.releaseBody().then(next.exchange(request));
+                });
+    }
+
+    /**
+     * Prefer the first configured encoding the upstream advertises
+     */
+    private void learnFromResponse(ClientResponse response) {
+        String advertised = response.headers().asHttpHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING);
+        if (advertised == null) {
+            return;
+        }
+        String preferred = preferred(advertised);
+        if (preferred != null && !preferred.equals(activeEncoding)) {
+            log.info("Upstream '{}' advertises request encodings [{}], switching to {}", upstream, advertised, preferred);
+            activeEncoding = preferred;
+        }
+    }
+
+    private void refuse(String encoding, String advertised) {
+        String fallback = advertised != null ? preferred(advertised) : null;
+        log.warn("Upstream '{}' rejected {}-encoded request body; falling back to {}",
+                upstream, encoding, fallback != null ? fallback : "identity");
+        activeEncoding = fallback;
+    }
+
+    private String preferred(String acceptEncoding) {
+        List<String> accepted = Arrays.stream(acceptEncoding.split(","))
+                .map(value -> value.split(";")[0].trim().toLowerCase(Locale.ROOT))
+                .toList();
+        return configuredEncodings.stream()
+                .filter(accepted::contains)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private Flux<DataBuffer> compress(Flux<DataBuffer> body, String encoding, ClientHttpRequest message) {
+        return Flux.defer(() -> {
+            StreamingCompressor compressor = new StreamingCompressor(encoding, settings.getLevel());
+            return body
+                    .publishOn(scheduler)
+                    .map(buffer -> {
+                        try {
+                            return compressor.write(buffer);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .concatWith(Mono.fromCallable(compressor::finish))
+                    .filter(bytes -> bytes.length > 0)
+                    .map(bytes -> message.bufferFactory().wrap(bytes))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .doOnComplete(() -> record(compressor))
+                    .doFinally(signal -> compressor.close());
+        });
+    }
+
+    private void record(StreamingCompressor compressor) {
+        String encoding = compressor.getEncoding();
+        Counter.builder("relay.upstream.compression.bytes")
+                .description("Request body bytes before and after compression")
+                .tags("upstream", upstream, "encoding", encoding, "type", "raw")
+                .register(meterRegistry)
+                .increment(compressor.getRawBytes());
+        Counter.builder("relay.upstream.compression.bytes")
+                .description("Request body bytes before and after compression")
+                .tags("upstream", upstream, "encoding", encoding, "type", "compressed")
+                .register(meterRegistry)
+                .increment(compressor.getCompressedBytes());
+        if (compressor.getRawBytes() > 0) {
+            DistributionSummary.builder("relay.upstream.compression.ratio")
+                    .description("Compressed / raw request body size")
+                    .tags("upstream", upstream, "encoding", encoding)
+                    .register(meterRegistry)
+                    .record((double) compressor.getCompressedBytes() / compressor.getRawBytes());
+        }
+        Timer.builder("relay.upstream.compression.cpu")
+                .description("CPU time spent compressing one request body")
+                .tags("upstream", upstream, "encoding", encoding)
+                .register(meterRegistry)
+                .record(compressor.getCpuNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Swaps the body for its compressed form once the encoder has fixed Content-Length
+     */
+    private class CompressingRequest extends ClientHttpRequestDecorator {
+
+        private final String encoding;
+        private final AtomicBoolean applied;
+
+        CompressingRequest(ClientHttpRequest delegate, String encoding, AtomicBoolean applied) {
+            super(delegate);
+            this.encoding = encoding;
+            this.applied = applied;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            long contentLength = headers.getContentLength();
+            if (headers.containsKey(HttpHeaders.CONTENT_ENCODING)
+                    || (contentLength >= 0 && contentLength < settings.getThreshold().toBytes())) {
+                return super.writeWith(body);
+            }
+
+            applied.set(true);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.set(HttpHeaders.CONTENT_ENCODING, encoding);
+            return super.writeWith(compress(Flux.from(body), encoding, getDelegate()));
+        }
+    }
+}
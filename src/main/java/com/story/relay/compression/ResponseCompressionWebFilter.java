@@ -0,0 +1,193 @@
+package com.story.relay.compression;
+
+import com.story.relay.config.ResponseCompressionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compresses JSON responses for callers that send Accept-Encoding (gzip, zstd)
+ * - per-route minimum sizes (response-compression.routes); bodies of unknown length are compressed
+ * - the body is encoded buffer by buffer on the compression scheduler, never aggregated
+ * - streaming responses (SSE, NDJSON) are left alone so each event is delivered immediately
+ *
+ * relay.http.response.compression.bytes{route, encoding, type=raw|compressed}
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@EnableConfigurationProperties(ResponseCompressionProperties.class)
+@Slf4j
+public class ResponseCompressionWebFilter implements WebFilter {
+
+    private static final String OTHER_ROUTE = "other";
+
+    private final ResponseCompressionProperties properties;
+    private final CompressionScheduler compressionScheduler;
+    private final MeterRegistry meterRegistry;
+    private final List<String> serverEncodings;
+
+    public ResponseCompressionWebFilter(ResponseCompressionProperties properties,
+                                        CompressionScheduler compressionScheduler,
+                                        MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.compressionScheduler = compressionScheduler;
+        this.meterRegistry = meterRegistry;
+        this.serverEncodings = properties.getEncodings().stream()
+                .map(encoding -> encoding.toLowerCase(Locale.ROOT))
+                .filter(StreamingCompressor::isSupported)
+                .toList();
+        log.info("Response compression: enabled={}, encodings={}, defaultThreshold={}, routes={}",
+                properties.isEnabled(), serverEncodings, properties.getDefaultThreshold(), properties.getRoutes());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!properties.isEnabled() || HttpMethod.HEAD.equals(exchange.getRequest().getMethod())) {
+            return chain.filter(exchange);
+        }
+
+        String encoding = negotiate(exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING));
+        exchange.getResponse().getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (encoding == null) {
+            return chain.filter(exchange);
+        }
+
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        String route = properties.getRoutes().containsKey(path) ? path : OTHER_ROUTE;
+        DataSize threshold = properties.getRoutes().getOrDefault(path, properties.getDefaultThreshold());
+
+        return chain.filter(exchange.mutate()
+                .response(new CompressingResponse(exchange.getResponse(), encoding, route, threshold))
+                .build());
+    }
+
+    /**
+     * Pick the first server-preferred encoding the caller accepts with a non-zero q-value
+     */
+    private String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        Map<String, Double> qualities = new HashMap<>();
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String parameter = tokens[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (!coding.isEmpty()) {
+                qualities.put(coding, quality);
+            }
+        }
+        double wildcard = qualities.getOrDefault("*", 0.0);
+        return serverEncodings.stream()
+                .filter(encoding -> qualities.getOrDefault(encoding, wildcard) > 0)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private boolean compressible(HttpHeaders headers, DataSize threshold) {
+        if (headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return false;
+        }
+        MediaType contentType = headers.getContentType();
+        if (contentType == null
+                || !(MediaType.APPLICATION_JSON.isCompatibleWith(contentType)
+                    || MediaType.APPLICATION_PROBLEM_JSON.isCompatibleWith(contentType))) {
+            return false;
+        }
+        long contentLength = headers.getContentLength();
+        return contentLength < 0 || contentLength >= threshold.toBytes();
+    }
+
+    private void record(String route, StreamingCompressor compressor) {
+        Counter.builder("relay.http.response.compression.bytes")
+                .description("Response body bytes before and after compression")
+                .tags("route", route, "encoding", compressor.getEncoding(), "type", "raw")
+                .register(meterRegistry)
+                .increment(compressor.getRawBytes());
+        Counter.builder("relay.http.response.compression.bytes")
+                .description("Response body bytes before and after compression")
+                .tags("route", route, "encoding", compressor.getEncoding(), "type", "compressed")
+                .register(meterRegistry)
+                .increment(compressor.getCompressedBytes());
+    }
+
+    private class CompressingResponse extends ServerHttpResponseDecorator {
+
+        private final String encoding;
+        private final String route;
+        private final DataSize threshold;
+
+        CompressingResponse(ServerHttpResponse delegate, String encoding, String route, DataSize threshold) {
+            super(delegate);
+            this.encoding = encoding;
+            this.route = route;
+            this.threshold = threshold;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            if (!compressible(headers, threshold)) {
+                return super.writeWith(body);
+            }
+
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.set(HttpHeaders.CONTENT_ENCODING, encoding);
+            return super.writeWith(compress(Flux.from(body)));
+        }
+
+        private Flux<DataBuffer> compress(Flux<DataBuffer> body) {
+            return Flux.defer(() -> {
+                StreamingCompressor compressor = new StreamingCompressor(encoding, properties.levelFor(encoding));
+                return body
+                        .publishOn(compressionScheduler.get())
+                        .map(buffer -> {
+                            try {
+                                return compressor.write(buffer);
+                            } finally {
+                                DataBufferUtils.release(buffer);
+                            }
+                        })
+                        .concatWith(Mono.fromCallable(compressor::finish))
+                        .filter(bytes -> bytes.length > 0)
+                        .map(bytes -> bufferFactory().wrap(bytes))
+                        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                        .doOnComplete(() -> record(route, compressor))
+                        .doFinally(signal -> compressor.close());
+            });
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.story.relay.compression;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Incremental gzip/zstd encoder for a body that arrives as a sequence of buffers
+ * Each write returns whatever compressed bytes are ready, so the whole body is never held at once.
+ * Tracks raw/compressed byte counts and the CPU time spent compressing on the calling threads.
+ * Not thread-safe - one instance per body, driven sequentially.
+ */
+public class StreamingCompressor implements AutoCloseable {
+
+    public static final String GZIP = "gzip";
+    public static final String ZSTD = "zstd";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final byte[] EMPTY = new byte[0];
+
+    private final String encoding;
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(8192);
+    private final OutputStream encoder;
+    private final byte[] copyBuffer = new byte[8192];
+
+    private long rawBytes;
+    private long compressedBytes;
+    private long cpuNanos;
+    private boolean closed;
+
+    /**
+     * @param level encoder level (gzip 1-9, zstd 1-22); 0 selects the encoding's default
+     */
+    public StreamingCompressor(String encoding, int level) {
+        this.encoding = encoding.toLowerCase(Locale.ROOT);
+        try {
+            this.encoder = switch (this.encoding) {
+                case GZIP -> new LevelGzipOutputStream(sink, level);
+                case ZSTD -> new ZstdOutputStream(sink, level);
+                default -> throw new IllegalArgumentException("Unsupported content encoding: " + encoding);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static boolean isSupported(String encoding) {
+        String normalized = encoding.toLowerCase(Locale.ROOT);
+        return GZIP.equals(normalized) || ZSTD.equals(normalized);
+    }
+
+    /**
+     * Compress one buffer; the buffer is consumed but not released
+     */
+    public byte[] write(DataBuffer buffer) {
+        long start = cpuTime();
+        try {
+            int readable;
+            while ((readable = buffer.readableByteCount()) > 0) {
+                int length = Math.min(readable, copyBuffer.length);
+                buffer.read(copyBuffer, 0, length);
+                encoder.write(copyBuffer, 0, length);
+                rawBytes += length;
+            }
+            return drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            cpuNanos += cpuTime() - start;
+        }
+    }
+
+    /**
+     * Flush the encoder trailer; call once after the last write
+     */
+    public byte[] finish() {
+        long start = cpuTime();
+        try {
+            encoder.close();
+            closed = true;
+            return drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            cpuNanos += cpuTime() - start;
+        }
+    }
+
+    private byte[] drain() {
+        if (sink.size() == 0) {
+            return EMPTY;
+        }
+        byte[] compressed = sink.toByteArray();
+        sink.reset();
+        compressedBytes += compressed.length;
+        return compressed;
+    }
+
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    public String getEncoding() {
+        return encoding;
+    }
+
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * Release native/deflater resources when the body is abandoned before finish()
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            try {
+                encoder.close();
+            } catch (IOException ignored) {
+                // body was abandoned, nothing left to flush
+            }
+        }
+    }
+
+    /**
+     * GZIPOutputStream with a configurable deflate level
+     */
+    private static final class LevelGzipOutputStream extends GZIPOutputStream {
+        LevelGzipOutputStream(OutputStream out, int level) throws IOException {
+            super(out, 8192);
+            def.setLevel(level > 0 ? level : Deflater.DEFAULT_COMPRESSION);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.story.relay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Per-upstream tuning under ai-servers.&lt;name&gt;.*
+ * url/timeout stay on @Value injection in WebClientConfig; this class holds the nested settings
+ */
+@Data
+@ConfigurationProperties(prefix = "ai-servers")
+public class AiServerProperties {
+
+    public static final String ANALYSIS = "analysis";
+    public static final String IMAGE_GENERATION = "image-generation";
+    public static final String RAG = "rag";
+    public static final String MUSIC = "music";
+
+    private Upstream analysis = new Upstream();
+    private Upstream imageGeneration = new Upstream();
+    private Upstream rag = new Upstream();
+    private Upstream music = new Upstream();
+
+    /**
+     * Look up upstream settings by config key (analysis, image-generation, rag, music)
+     */
+    public Upstream get(String name) {
+        return switch (name) {
+            case ANALYSIS -> analysis;
+            case IMAGE_GENERATION -> imageGeneration;
+            case RAG -> rag;
+            case MUSIC -> music;
+            default -> throw new IllegalArgumentException("Unknown AI server: " + name);
+        };
+    }
+
+    @Data
+    public static class Upstream {
+        private Pool pool = new Pool();
+        private BulkheadSettings bulkhead = new BulkheadSettings();
+        private CircuitBreakerSettings circuitBreaker = new CircuitBreakerSettings();
+        private Compression compression = new Compression();
+        private ProtocolSettings protocol = new ProtocolSettings();
+    }
+
+    /**
+     * Reactor Netty connection pool settings
+     */
+    @Data
+    public static class Pool {
+        private int maxConnections = 50;
+        private int pendingAcquireMaxCount = 100;           // 대기 큐 크기 (-1: 무제한)
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(45);
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(10);
+        private Duration evictionInterval = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Concurrency limit for calls to one AI server
+     */
+    @Data
+    public static class BulkheadSettings {
+        private int maxConcurrentCalls = 20;
+        private int maxQueueSize = 50;
+        private Duration maxWaitDuration = Duration.ofSeconds(5);
+        private Duration retryAfter = Duration.ofSeconds(5);   // 503 응답의 Retry-After 값
+    }
+
+    /**
+     * Circuit breaker for one AI server (count-based sliding window)
+     */
+    @Data
+    public static class CircuitBreakerSettings {
+        private int slidingWindowSize = 20;
+        private int minimumNumberOfCalls = 10;
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 80;
+        private Duration slowCallDurationThreshold = Duration.ofSeconds(20);
+        private Duration waitDurationInOpenState = Duration.ofSeconds(30);
+        private int permittedNumberOfCallsInHalfOpenState = 3;
+    }
+
+    /**
+     * Request-body compression towards one AI server (opt-in - the upstream must decode it)
+     */
+    @Data
+    public static class Compression {
+        private boolean enabled = false;
+        private List<String> encodings = List.of("gzip");   // 선호 순서; zstd는 업스트림이 Accept-Encoding으로 알린 경우에만 사용
+        private DataSize threshold = DataSize.ofKilobytes(16);
+        private int level = 0;                               // 0: 인코딩 기본값
+    }
+
+    /**
+     * HTTP version used towards one AI server
+     * h2 negotiates via ALPN (https only); h2c uses prior knowledge, or the HTTP/1.1 Upgrade
+     * handshake when fallback-to-http11 is set so that HTTP/1.1-only servers keep working
+     */
+    @Data
+    public static class ProtocolSettings {
+        private Version version = Version.HTTP11;
+        private int maxConcurrentStreams = 100;   // 연결당 최대 동시 스트림 수 (h2/h2c)
+        private boolean fallbackToHttp11 = true;
+
+        public boolean isHttp2() {
+            return version != Version.HTTP11;
+        }
+    }
+
+    public enum Version {
+        HTTP11, H2, H2C
+    }
+}
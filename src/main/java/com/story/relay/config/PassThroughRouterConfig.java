@@ -0,0 +1,44 @@
+package com.story.relay.config;
+
+import com.story.relay.controller.AnalysisPassThroughHandler;
+import com.story.relay.exception.GlobalExceptionHandler;
+import com.story.relay.service.AnalysisAiClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * Raw pass-through routes for the schemaless analysis endpoints
+ * Router functions are consulted before @RequestMapping handlers, so when enabled these routes
+ * take over the matching AiController methods. Everything that needs the decoded body is bypassed
+ * in this mode: Idempotency-Key handling, in-flight coalescing, the analysis result cache
+ * (AnalysisResultCache) and the story-context store (StoryContextStore) - analyze / finalize-analysis
+ * results are not remembered, and generate-next-episode requests are not filled in from it.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ai-servers.analysis.pass-through", name = "enabled", havingValue = "true")
+@Slf4j
+public class PassThroughRouterConfig {
+
+    @Bean
+    public AnalysisPassThroughHandler analysisPassThroughHandler(
+            AnalysisAiClient analysisAiClient,
+            GlobalExceptionHandler globalExceptionHandler) {
+        return new AnalysisPassThroughHandler(analysisAiClient, globalExceptionHandler);
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> analysisPassThroughRoutes(AnalysisPassThroughHandler handler) {
+        log.info("Analysis pass-through mode enabled; idempotency, coalescing, analysis cache and story context are bypassed");
+        return route(POST("/ai/analyze"), handler::analyze)
+                .andRoute(POST("/ai/generate"), handler::generate)
+                .andRoute(POST("/ai/finalize-analysis"), handler::finalizeAnalysis)
+                .andRoute(POST("/ai/generate-next-episode"), handler::generateNextEpisode);
+    }
+}
@@ -0,0 +1,29 @@
+package com.story.relay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response compression negotiated with callers via Accept-Encoding (response-compression.*)
+ * routes maps a request path to its minimum body size; other paths use default-threshold
+ */
+@Data
+@ConfigurationProperties(prefix = "response-compression")
+public class ResponseCompressionProperties {
+
+    private boolean enabled = true;
+    private List<String> encodings = List.of("zstd", "gzip");   // 서버 선호 순서
+    private DataSize defaultThreshold = DataSize.ofKilobytes(8);
+    private Map<String, DataSize> routes = new LinkedHashMap<>();
+    private int gzipLevel = 0;   // 0: 인코딩 기본값
+    private int zstdLevel = 0;
+
+    public int levelFor(String encoding) {
+        return "zstd".equals(encoding) ? zstdLevel : gzipLevel;
+    }
+}
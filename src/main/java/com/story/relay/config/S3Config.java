@@ -7,8 +7,14 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+import java.net.URI;
+import java.time.Duration;
 
 @Configuration
 @Slf4j
@@ -23,23 +29,70 @@ public class S3Config {
     @Value("${aws.s3.secret-key}")
     private String secretKey;
 
+    @Value("${aws.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${aws.s3.path-style-access:false}")
+    private boolean pathStyleAccess;
+
+    @Value("${aws.s3.async.max-concurrency:64}")
+    private int asyncMaxConcurrency;
+
+    @Value("${aws.s3.async.connection-acquire-timeout:10000}")
+    private long asyncConnectionAcquireTimeout;
+
     private S3Client s3Client;
+    private S3AsyncClient s3AsyncClient;
 
     @Bean
     public S3Client s3Client() {
         AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(accessKey, secretKey);
 
-        this.s3Client = S3Client.builder()
+        var builder = S3Client.builder()
                 .region(Region.of(region))
                 .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
-                .build();
+                .serviceConfiguration(s3Configuration());
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        this.s3Client = builder.build();
 
         log.info("S3Client initialized for region: {}", region);
         return this.s3Client;
     }
 
     /**
-     * Close S3Client on application shutdown to prevent resource leaks
+     * Non-blocking S3 client for reactive upload paths, backed by the SDK's Netty NIO HTTP client
+     */
+    @Bean
+    public S3AsyncClient s3AsyncClient() {
+        AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(accessKey, secretKey);
+
+        var builder = S3AsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
+                .serviceConfiguration(s3Configuration())
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(asyncMaxConcurrency)
+                        .connectionAcquisitionTimeout(Duration.ofMillis(asyncConnectionAcquireTimeout))
+                        .tcpKeepAlive(true));
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        this.s3AsyncClient = builder.build();
+
+        log.info("S3AsyncClient initialized for region: {} (maxConcurrency={})", region, asyncMaxConcurrency);
+        return this.s3AsyncClient;
+    }
+
+    private S3Configuration s3Configuration() {
+        return S3Configuration.builder()
+                .pathStyleAccessEnabled(pathStyleAccess)
+                .build();
+    }
+
+    /**
+     * Close S3 clients on application shutdown to prevent resource leaks
      */
     @PreDestroy
     public void shutdown() {
@@ -51,5 +104,13 @@ public class S3Config {
                 log.error("Error closing S3Client: {}", e.getMessage(), e);
             }
         }
+        if (s3AsyncClient != null) {
+            try {
+                s3AsyncClient.close();
+                log.info("S3AsyncClient closed successfully");
+            } catch (Exception e) {
+                log.error("Error closing S3AsyncClient: {}", e.getMessage(), e);
+            }
+        }
     }
 }
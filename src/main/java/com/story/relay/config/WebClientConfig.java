@@ -1,21 +1,36 @@
 package com.story.relay.config;
 
+import com.story.relay.compression.CompressionScheduler;
+import com.story.relay.compression.RequestCompressionFilter;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.channel.ChannelOption;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.handler.timeout.WriteTimeoutHandler;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Configuration
+@EnableConfigurationProperties(AiServerProperties.class)
+@Slf4j
 public class WebClientConfig {
 
     @Value("${ai-servers.analysis.url}")
@@ -42,67 +57,147 @@ public class WebClientConfig {
     @Value("${ai-servers.music.timeout:10000}")
     private int musicTimeout;
 
-    @Bean
-    public WebClient analysisAiWebClient() {
-        HttpClient httpClient = HttpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, analysisTimeout)
-                .responseTimeout(Duration.ofMillis(analysisTimeout))
-                .doOnConnected(conn ->
-                        conn.addHandlerLast(new ReadTimeoutHandler(analysisTimeout, TimeUnit.MILLISECONDS))
-                            .addHandlerLast(new WriteTimeoutHandler(analysisTimeout, TimeUnit.MILLISECONDS)));
+    @Value("${ai-servers.event-loop-threads:0}")
+    private int eventLoopThreads;
 
-        return WebClient.builder()
-                .baseUrl(analysisAiUrl)
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .build();
+    private final AiServerProperties aiServerProperties;
+    private final MeterRegistry meterRegistry;
+    private final CompressionScheduler compressionScheduler;
+
+    private final List<ConnectionProvider> connectionProviders = new ArrayList<>();
+
+    private LoopResources aiClientLoopResources;
+
+    public WebClientConfig(AiServerProperties aiServerProperties, MeterRegistry meterRegistry,
+                           CompressionScheduler compressionScheduler) {
+        this.aiServerProperties = aiServerProperties;
+        this.meterRegistry = meterRegistry;
+        this.compressionScheduler = compressionScheduler;
     }
 
+    /**
+     * Event loop shared by all AI server clients
+     * Isolated from the inbound server loop so upstream I/O cannot stall request handling
+     */
     @Bean
-    public WebClient imageGenerationAiWebClient() {
-        HttpClient httpClient = HttpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, imageGenerationTimeout)
-                .responseTimeout(Duration.ofMillis(imageGenerationTimeout))
-                .doOnConnected(conn ->
-                        conn.addHandlerLast(new ReadTimeoutHandler(imageGenerationTimeout, TimeUnit.MILLISECONDS))
-                            .addHandlerLast(new WriteTimeoutHandler(imageGenerationTimeout, TimeUnit.MILLISECONDS)));
+    public LoopResources aiClientLoopResources() {
+        int threads = eventLoopThreads > 0 ? eventLoopThreads : LoopResources.DEFAULT_IO_WORKER_COUNT;
+        this.aiClientLoopResources = LoopResources.create("ai-client", threads, true);
+        log.info("AI client event loop initialized with {} threads", threads);
+        return this.aiClientLoopResources;
+    }
 
-        return WebClient.builder()
-                .baseUrl(imageGenerationAiUrl)
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .build();
+    @Bean
+    public WebClient analysisAiWebClient(LoopResources aiClientLoopResources) {
+        return buildWebClient(AiServerProperties.ANALYSIS, analysisAiUrl, analysisTimeout, aiClientLoopResources);
     }
 
     @Bean
-    public WebClient ragServerWebClient() {
-        HttpClient httpClient = HttpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, ragTimeout)
-                .responseTimeout(Duration.ofMillis(ragTimeout))
-                .doOnConnected(conn ->
-                        conn.addHandlerLast(new ReadTimeoutHandler(ragTimeout, TimeUnit.MILLISECONDS))
-                            .addHandlerLast(new WriteTimeoutHandler(ragTimeout, TimeUnit.MILLISECONDS)));
+    public WebClient imageGenerationAiWebClient(LoopResources aiClientLoopResources) {
+        return buildWebClient(AiServerProperties.IMAGE_GENERATION, imageGenerationAiUrl, imageGenerationTimeout, aiClientLoopResources);
+    }
 
-        return WebClient.builder()
-                .baseUrl(ragServerUrl)
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .build();
+    @Bean
+    public WebClient ragServerWebClient(LoopResources aiClientLoopResources) {
+        return buildWebClient(AiServerProperties.RAG, ragServerUrl, ragTimeout, aiClientLoopResources);
     }
 
     @Bean
-    public WebClient musicAiWebClient() {
-        HttpClient httpClient = HttpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, musicTimeout)
-                .responseTimeout(Duration.ofMillis(musicTimeout))
+    public WebClient musicAiWebClient(LoopResources aiClientLoopResources) {
+        return buildWebClient(AiServerProperties.MUSIC, musicAiUrl, musicTimeout, aiClientLoopResources);
+    }
+
+    private WebClient buildWebClient(String name, String baseUrl, int timeout, LoopResources loopResources) {
+        AiServerProperties.ProtocolSettings protocol = aiServerProperties.get(name).getProtocol();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider(name))
+                .runOn(loopResources)
+                .protocol(httpProtocols(protocol))
+                // Request/response bytes, latency and event loop gauges per URI (reactor.netty.http.client.*)
+                .metrics(true, Function.identity())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeout)
+                .responseTimeout(Duration.ofMillis(timeout))
                 .doOnConnected(conn ->
-                        conn.addHandlerLast(new ReadTimeoutHandler(musicTimeout, TimeUnit.MILLISECONDS))
-                            .addHandlerLast(new WriteTimeoutHandler(musicTimeout, TimeUnit.MILLISECONDS)));
+                        conn.addHandlerLast(new ReadTimeoutHandler(timeout, TimeUnit.MILLISECONDS))
+                            .addHandlerLast(new WriteTimeoutHandler(timeout, TimeUnit.MILLISECONDS)));
 
-        return WebClient.builder()
-                .baseUrl(musicAiUrl)
+        if (protocol.getVersion() == AiServerProperties.Version.H2 && baseUrl.startsWith("https")) {
+            httpClient = httpClient.secure();
+        }
+
+        WebClient.Builder builder = WebClient.builder()
+                .baseUrl(baseUrl)
                 .clientConnector(new ReactorClientHttpConnector(httpClient))
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .build();
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+
+        AiServerProperties.Compression compression = aiServerProperties.get(name).getCompression();
+        if (compression.isEnabled()) {
+            builder.filter(new RequestCompressionFilter(name, compression, compressionScheduler.get(), meterRegistry));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Protocols offered to the AI server, in preference order
+     * H2C alone means prior knowledge; H2C with HTTP11 performs the h2c Upgrade handshake
+     */
+    private HttpProtocol[] httpProtocols(AiServerProperties.ProtocolSettings protocol) {
+        return switch (protocol.getVersion()) {
+            case HTTP11 -> new HttpProtocol[] {HttpProtocol.HTTP11};
+            case H2 -> protocol.isFallbackToHttp11()
+                    ? new HttpProtocol[] {HttpProtocol.H2, HttpProtocol.HTTP11}
+                    : new HttpProtocol[] {HttpProtocol.H2};
+            case H2C -> protocol.isFallbackToHttp11()
+                    ? new HttpProtocol[] {HttpProtocol.H2C, HttpProtocol.HTTP11}
+                    : new HttpProtocol[] {HttpProtocol.H2C};
+        };
+    }
+
+    /**
+     * Named connection pool per AI server, sized from ai-servers.&lt;name&gt;.pool.*
+     * Pool gauges are published as reactor.netty.connection.provider.* tagged with name
+     */
+    private ConnectionProvider connectionProvider(String name) {
+        AiServerProperties.Pool pool = aiServerProperties.get(name).getPool();
+
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(pool.getEvictionInterval())
+                .metrics(true);
+
+        // HTTP/2: multiplex up to maxConcurrentStreams calls on each of at most maxConnections connections
+        AiServerProperties.ProtocolSettings protocol = aiServerProperties.get(name).getProtocol();
+        if (protocol.isHttp2()) {
+            builder.allocationStrategy(Http2AllocationStrategy.builder()
+                    .maxConnections(pool.getMaxConnections())
+                    .maxConcurrentStreams(protocol.getMaxConcurrentStreams())
+                    .minConnections(1)
+                    .build());
+        }
+
+        ConnectionProvider provider = builder.build();
+        connectionProviders.add(provider);
+
+        log.info("Connection pool '{}' initialized: protocol={}, maxConnections={}, maxConcurrentStreams={}, pendingAcquireMaxCount={}",
+                name, protocol.getVersion(), pool.getMaxConnections(),
+                protocol.isHttp2() ? protocol.getMaxConcurrentStreams() : 1, pool.getPendingAcquireMaxCount());
+        return provider;
+    }
+
+    /**
+     * Release pooled connections and event loop threads on application shutdown
+     */
+    @PreDestroy
+    public void shutdown() {
+        connectionProviders.forEach(ConnectionProvider::dispose);
+        if (aiClientLoopResources != null) {
+            aiClientLoopResources.dispose();
+        }
+        log.info("AI client connection pools and event loop released");
     }
 }
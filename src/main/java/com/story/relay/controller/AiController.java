@@ -1,5 +1,6 @@
 package com.story.relay.controller;
 
+import com.story.relay.config.AiServerProperties;
 import com.story.relay.dto.CharacterIndexRequestDto;
 import com.story.relay.dto.CharacterSetRequestDto;
 import com.story.relay.dto.ChatMessageRequestDto;
@@ -10,23 +11,37 @@ import com.story.relay.dto.NovelStyleLearnRequestDto;
 import com.story.relay.dto.NovelStyleLearnResponseDto;
 import com.story.relay.dto.ImageGenerationRequestDto;
 import com.story.relay.dto.ImageGenerationResponseDto;
+import com.story.relay.dto.SubtreeRegenerationEventDto;
 import com.story.relay.dto.SubtreeRegenerationRequestDto;
 import com.story.relay.dto.SubtreeRegenerationResponseDto;
 import com.story.relay.dto.MusicRequestDto;
 import com.story.relay.dto.MusicResponseDto;
+import com.story.relay.idempotency.IdempotencyStore;
+import com.story.relay.outbox.RagMutation;
+import com.story.relay.outbox.RagOutbox;
+import com.story.relay.resilience.AiCircuitBreakerRegistry;
 import com.story.relay.service.AnalysisAiClient;
 import com.story.relay.service.ImageGenerationAiClient;
 import com.story.relay.service.RagAiClient;
+import com.story.relay.service.SubtreeRegenerationService;
+import com.story.relay.service.UpstreamHealthMonitor;
 import com.story.relay.service.MusicRecommendationAiClient;
 import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -39,6 +54,11 @@ public class AiController {
     private final ImageGenerationAiClient imageGenerationAiClient;
     private final RagAiClient ragAiClient;
     private final MusicRecommendationAiClient musicRecommendationAiClient;
+    private final AiCircuitBreakerRegistry circuitBreakerRegistry;
+    private final UpstreamHealthMonitor upstreamHealthMonitor;
+    private final SubtreeRegenerationService subtreeRegenerationService;
+    private final IdempotencyStore idempotencyStore;
+    private final RagOutbox ragOutbox;
 
     /**
      * Analyze novel text to extract summary, characters, and gauges
@@ -46,7 +66,9 @@ public class AiController {
      */
     @Operation(summary = "소설 분석")
     @PostMapping("/analyze")
-    public Mono<ResponseEntity<Map<String, Object>>> analyzeNovel(@RequestBody Map<String, Object> request) {
+    public Mono<ResponseEntity<Map<String, Object>>> analyzeNovel(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Analyze Novel Request ===");
         log.info("Received request keys: {}", request.keySet());
 
@@ -66,7 +88,8 @@ public class AiController {
 
         return analysisAiClient.analyze(request)
                 .map(ResponseEntity::ok)
-                .doOnSuccess(response -> log.info("Analysis completed successfully"));
+                .doOnSuccess(response -> log.info("Analysis completed successfully"))
+                .transform(idempotencyStore.idempotent("/analyze", idempotencyKey, request));
     }
 
     /**
@@ -75,13 +98,16 @@ public class AiController {
      */
     @Operation(summary = "S3에서 소설 분석")
     @PostMapping("/analyze-from-s3")
-    public Mono<ResponseEntity<Map<String, Object>>> analyzeNovelFromS3(@RequestBody Map<String, Object> request) {
+    public Mono<ResponseEntity<Map<String, Object>>> analyzeNovelFromS3(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Analyze Novel From S3 Request ===");
         log.info("Received request keys: {}", request.keySet());
 
         return analysisAiClient.analyzeFromS3(request)
                 .map(ResponseEntity::ok)
-                .doOnSuccess(response -> log.info("S3 analysis completed successfully"));
+                .doOnSuccess(response -> log.info("S3 analysis completed successfully"))
+                .transform(idempotencyStore.idempotent("/analyze-from-s3", idempotencyKey, request));
     }
 
     /**
@@ -90,13 +116,16 @@ public class AiController {
      */
     @Operation(summary = "소설 생성")
     @PostMapping("/generate")
-    public Mono<ResponseEntity<Map<String, Object>>> generateStory(@RequestBody Map<String, Object> request) {
+    public Mono<ResponseEntity<Map<String, Object>>> generateStory(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Generate Story Request ===");
         log.info("Request: {}", request.keySet());
 
         return analysisAiClient.generate(request)
                 .map(ResponseEntity::ok)
-                .doOnSuccess(response -> log.info("Story generation completed successfully"));
+                .doOnSuccess(response -> log.info("Story generation completed successfully"))
+                .transform(idempotencyStore.idempotent("/generate", idempotencyKey, request));
     }
 
     /**
@@ -106,7 +135,8 @@ public class AiController {
     @Operation(summary = "소설 스타일 학습")
     @PostMapping("/learn-novel-style")
     public Mono<ResponseEntity<NovelStyleLearnResponseDto>> learnNovelStyle(
-            @Valid @RequestBody NovelStyleLearnRequestDto request) {
+            @Valid @RequestBody NovelStyleLearnRequestDto request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Learn Novel Style Request ===");
         log.info("Story ID: {}", request.getStory_id());
 
@@ -119,7 +149,8 @@ public class AiController {
                     } else {
                         log.info("Novel style learning completed");
                     }
-                });
+                })
+                .transform(idempotencyStore.idempotent("/learn-novel-style", idempotencyKey, request));
     }
 
     /**
@@ -129,7 +160,8 @@ public class AiController {
     @Operation(summary = "이미지 생성")
     @PostMapping("/generate-image")
     public Mono<ResponseEntity<ImageGenerationResponseDto>> generateImage(
-            @Valid @RequestBody ImageGenerationRequestDto request) {
+            @Valid @RequestBody ImageGenerationRequestDto request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Generate Image Request ===");
         log.info("Node text: {}", request.getNodeText());
         log.info("Episode: {}", request.getEpisodeTitle());
@@ -137,7 +169,22 @@ public class AiController {
         return imageGenerationAiClient.generateImage(request)
                 .map(ResponseEntity::ok)
                 .doOnSuccess(response -> log.info("Image generation completed: {}",
-                        response.getBody().getImageUrl()));
+                        response.getBody().getImageUrl()))
+                .transform(idempotencyStore.idempotent("/generate-image", idempotencyKey, request));
+    }
+
+    /**
+     * Generate images for several story nodes in one call
+     * Each result is streamed back as an NDJSON line as soon as it completes
+     */
+    @Operation(summary = "이미지 일괄 생성 (NDJSON 스트리밍)")
+    @PostMapping(value = "/generate-images", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ImageGenerationResponseDto> generateImages(
+            @RequestBody @NotEmpty @Size(max = 100) List<@Valid ImageGenerationRequestDto> requests) {
+        log.info("=== Generate Images (Batch) Request ===");
+        log.info("Items: {}", requests.size());
+
+        return imageGenerationAiClient.generateImages(requests);
     }
 
     /**
@@ -146,13 +193,16 @@ public class AiController {
      */
     @Operation(summary = "분석 완료 - 선택된 게이지로 최종 엔딩 생성")
     @PostMapping("/finalize-analysis")
-    public Mono<ResponseEntity<Map<String, Object>>> finalizeAnalysis(@RequestBody Map<String, Object> request) {
+    public Mono<ResponseEntity<Map<String, Object>>> finalizeAnalysis(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Finalize Analysis Request ===");
         log.info("Request keys: {}", request.keySet());
 
         return analysisAiClient.finalizeAnalysis(request)
                 .map(ResponseEntity::ok)
-                .doOnSuccess(response -> log.info("Finalize analysis completed successfully"));
+                .doOnSuccess(response -> log.info("Finalize analysis completed successfully"))
+                .transform(idempotencyStore.idempotent("/finalize-analysis", idempotencyKey, request));
     }
 
     /**
@@ -161,13 +211,16 @@ public class AiController {
      */
     @Operation(summary = "다음 에피소드 생성")
     @PostMapping("/generate-next-episode")
-    public Mono<ResponseEntity<Map<String, Object>>> generateNextEpisode(@RequestBody Map<String, Object> request) {
+    public Mono<ResponseEntity<Map<String, Object>>> generateNextEpisode(
+            @RequestBody Map<String, Object> request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Generate Next Episode Request ===");
         log.info("Request: {}", request.keySet());
 
         return analysisAiClient.generateNextEpisode(request)
                 .map(ResponseEntity::ok)
-                .doOnSuccess(response -> log.info("Next episode generation completed successfully"));
+                .doOnSuccess(response -> log.info("Next episode generation completed successfully"))
+                .transform(idempotencyStore.idempotent("/generate-next-episode", idempotencyKey, request));
     }
 
     /**
@@ -177,7 +230,8 @@ public class AiController {
     @Operation(summary = "서브트리 재생성")
     @PostMapping("/regenerate-subtree")
     public Mono<ResponseEntity<SubtreeRegenerationResponseDto>> regenerateSubtree(
-            @Valid @RequestBody SubtreeRegenerationRequestDto request) {
+            @Valid @RequestBody SubtreeRegenerationRequestDto request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Regenerate Subtree Request ===");
         log.info("Episode: {} (order {})", request.getEpisodeTitle(), request.getEpisodeOrder());
         log.info("Parent node: {}, depth: {}/{}", request.getParentNode().getNodeId(),
@@ -186,40 +240,61 @@ public class AiController {
         return analysisAiClient.regenerateSubtree(request)
                 .map(ResponseEntity::ok)
                 .doOnSuccess(response -> log.info("Subtree regeneration completed: {} nodes",
-                        response.getBody().getTotalNodesRegenerated()));
+                        response.getBody().getTotalNodesRegenerated()))
+                .transform(idempotencyStore.idempotent("/regenerate-subtree", idempotencyKey, request));
+    }
+
+    /**
+     * Regenerate subtree level by level, streaming each node as an NDJSON event
+     * Sibling branches are regenerated concurrently; a final "done" event carries the node count
+     */
+    @Operation(summary = "서브트리 재생성 (NDJSON 스트리밍)")
+    @PostMapping(value = "/regenerate-subtree/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<SubtreeRegenerationEventDto> regenerateSubtreeStreaming(
+            @Valid @RequestBody SubtreeRegenerationRequestDto request) {
+        log.info("=== Regenerate Subtree Stream Request ===");
+        log.info("Episode: {} (order {})", request.getEpisodeTitle(), request.getEpisodeOrder());
+        log.info("Parent node: {}, depth: {}/{}", request.getParentNode().getNodeId(),
+            request.getCurrentDepth(), request.getMaxDepth());
+
+        return subtreeRegenerationService.regenerateStreaming(request);
     }
 
     /**
      * Index a character for RAG-based chat
-     * Returns a reactive Mono for non-blocking execution
+     * Answers 202 once the mutation is durably queued; RagOutbox delivers it in the background
      */
     @Operation(summary = "캐릭터 인덱싱")
     @PostMapping("/chat/index-character")
-    public Mono<ResponseEntity<Boolean>> indexCharacter(@Valid @RequestBody CharacterIndexRequestDto request) {
+    public Mono<ResponseEntity<Boolean>> indexCharacter(
+            @Valid @RequestBody CharacterIndexRequestDto request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Index Character Request ===");
         log.info("Character: {} ({})", request.getName(), request.getCharacterId());
 
-        return ragAiClient.indexCharacter(request)
-                .map(ResponseEntity::ok)
-                .doOnSuccess(response -> log.info("Character indexing {}",
-                        response.getBody() ? "successful" : "failed"));
+        return ragOutbox.append(RagMutation.INDEX_CHARACTER, "character:" + request.getCharacterId(), request)
+                .map(seq -> ResponseEntity.accepted().body(true))
+                .doOnSuccess(response -> log.info("Character indexing queued: {}", request.getCharacterId()))
+                .transform(idempotencyStore.idempotent("/chat/index-character", idempotencyKey, request));
     }
 
     /**
      * Index a novel for RAG-based character chat
-     * Returns a reactive Mono for non-blocking execution
+     * Answers 202 once the mutation is durably queued; RagOutbox delivers it in the background
      */
     @Operation(summary = "소설 인덱싱")
     @PostMapping("/chat/index-novel")
-    public Mono<ResponseEntity<Boolean>> indexNovel(@Valid @RequestBody NovelIndexRequestDto request) {
+    public Mono<ResponseEntity<Boolean>> indexNovel(
+            @Valid @RequestBody NovelIndexRequestDto request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Index Novel Request ===");
         log.info("Story: {} ({})", request.getTitle(), request.getStoryId());
         log.info("File: {}/{}", request.getBucket(), request.getFileKey());
 
-        return ragAiClient.indexNovel(request)
-                .map(ResponseEntity::ok)
-                .doOnSuccess(response -> log.info("Novel indexing {}",
-                        response.getBody() ? "successful" : "failed"));
+        return ragOutbox.append(RagMutation.INDEX_NOVEL, "story:" + request.getStoryId(), request)
+                .map(seq -> ResponseEntity.accepted().body(true))
+                .doOnSuccess(response -> log.info("Novel indexing queued: {}", request.getStoryId()))
+                .transform(idempotencyStore.idempotent("/chat/index-novel", idempotencyKey, request));
     }
 
     /**
@@ -229,7 +304,8 @@ public class AiController {
     @Operation(summary = "캐릭터 챗봇 메시지 전송")
     @PostMapping("/chat/message")
     public Mono<ResponseEntity<ChatMessageResponseDto>> sendChatMessage(
-            @Valid @RequestBody ChatMessageRequestDto request) {
+            @Valid @RequestBody ChatMessageRequestDto request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Chat Message Request ===");
         log.info("Character: {}", request.getCharacterId());
         log.info("User message: {}", request.getUserMessage());
@@ -237,45 +313,87 @@ public class AiController {
         return ragAiClient.sendMessage(request)
                 .map(ResponseEntity::ok)
                 .doOnSuccess(response -> log.info("Chat response: {}",
-                        response.getBody().getAiMessage()));
+                        response.getBody().getAiMessage()))
+                .transform(idempotencyStore.idempotent("/chat/message", idempotencyKey, request));
+    }
+
+
+    /**
+     * Stream a character chatbot reply as Server-Sent Events
+     * Emits "token" events as the RAG server generates text, then a final "done" event
+     */
+    @Operation(summary = "캐릭터 챗봇 메시지 스트리밍 (SSE)")
+    @PostMapping(value = "/chat/message/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamChatMessage(
+            @Valid @RequestBody ChatMessageRequestDto request) {
+        log.info("=== Chat Message Stream Request ===");
+        log.info("Character: {}", request.getCharacterId());
+
+        return ragAiClient.streamMessage(request);
+    }
+
+    /**
+     * Stream a character chatbot reply as Server-Sent Events (GET variant for EventSource clients)
+     */
+    @Operation(summary = "캐릭터 챗봇 메시지 스트리밍 (SSE, GET)")
+    @GetMapping(value = "/chat/message/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamChatMessage(
+            @RequestParam @NotBlank @Size(max = 100) String characterId,
+            @RequestParam(required = false) @Size(max = 100) String characterName,
+            @RequestParam(required = false) @Size(max = 100) String storyId,
+            @RequestParam(required = false) @Size(max = 100) String userId,
+            @RequestParam @NotBlank @Size(max = 2000) String userMessage) {
+        log.info("=== Chat Message Stream Request (GET) ===");
+        log.info("Character: {}", characterId);
+
+        return ragAiClient.streamMessage(ChatMessageRequestDto.builder()
+                .characterId(characterId)
+                .characterName(characterName)
+                .storyId(storyId)
+                .userId(userId)
+                .userMessage(userMessage)
+                .build());
     }
 
 
     /**
      * Update game progress to NPC AI server
      * Called when player progresses through story
-     * Returns a reactive Mono for non-blocking execution
+     * Answers 202 once the update is durably queued (RagOutbox); rapid updates for one character are
+     * delivered in order and coalesced into a single upstream call (GameProgressPipeline)
      */
     @Operation(summary = "게임 진행 상황 업데이트")
     @PostMapping("/chat/update-progress")
     public Mono<ResponseEntity<Boolean>> updateGameProgress(
-            @Valid @RequestBody GameProgressUpdateRequestDto request) {
+            @Valid @RequestBody GameProgressUpdateRequestDto request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Update Game Progress Request ===");
         log.info("Character: {}", request.getCharacterId());
         log.info("Content length: {}", request.getContent() != null ? request.getContent().length() : 0);
 
-        return ragAiClient.updateGameProgress(request)
-                .map(ResponseEntity::ok)
-                .doOnSuccess(response -> log.info("Game progress update: {}",
-                        response.getBody() ? "success" : "failed"));
+        return ragOutbox.append(RagMutation.UPDATE_PROGRESS, "character:" + request.getCharacterId(), request)
+                .map(seq -> ResponseEntity.accepted().body(true))
+                .doOnSuccess(response -> log.info("Game progress update queued for: {}", request.getCharacterId()))
+                .transform(idempotencyStore.idempotent("/chat/update-progress", idempotencyKey, request));
     }
 
     /**
      * Set character information without training
      * Updates character persona/description in the RAG system
-     * Returns a reactive Mono for non-blocking execution
+     * Answers 202 once the mutation is durably queued; RagOutbox delivers it in the background
      */
     @Operation(summary = "캐릭터 정보 설정")
     @PostMapping("/chat/set-character")
     public Mono<ResponseEntity<Boolean>> setCharacter(
-            @Valid @RequestBody CharacterSetRequestDto request) {
+            @Valid @RequestBody CharacterSetRequestDto request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Set Character Request ===");
         log.info("Character: {} ({})", request.getCharacterName(), request.getCharacterId());
 
-        return ragAiClient.setCharacter(request)
-                .map(ResponseEntity::ok)
-                .doOnSuccess(response -> log.info("Character set: {}",
-                        response.getBody() ? "success" : "failed"));
+        return ragOutbox.append(RagMutation.SET_CHARACTER, "character:" + request.getCharacterId(), request)
+                .map(seq -> ResponseEntity.accepted().body(true))
+                .doOnSuccess(response -> log.info("Character set queued: {}", request.getCharacterId()))
+                .transform(idempotencyStore.idempotent("/chat/set-character", idempotencyKey, request));
     }
 
     /**
@@ -285,7 +403,8 @@ public class AiController {
     @Operation(summary = "씬 기반 음악 추천")
     @PostMapping("/recommend-music")
     public Mono<ResponseEntity<MusicResponseDto>> recommendMusic(
-            @Valid @RequestBody MusicRequestDto request) {
+            @Valid @RequestBody MusicRequestDto request,
+            @RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey) {
         log.info("=== Music Recommendation Request ===");
         log.info("Prompt: {}", request.getPrompt().length() > 100 ?
                 request.getPrompt().substring(0, 100) + "..." : request.getPrompt());
@@ -298,54 +417,61 @@ public class AiController {
                                 response.getBody().getMusic().getMood(),
                                 response.getBody().getMusic().getFilename());
                     }
-                });
+                })
+                .transform(idempotencyStore.idempotent("/recommend-music", idempotencyKey, request));
     }
 
     /**
      * Health check for relay server and AI servers
-     * Returns a reactive Mono for non-blocking execution
+     * Serves the background prober's cached snapshot; live=true forces a fresh probe
      */
     @Operation(summary = "헬스 체크")
     @GetMapping("/health")
-    public Mono<ResponseEntity<Map<String, Object>>> health() {
-        log.debug("Health check request");
-
-        return Mono.zip(
-                analysisAiClient.checkHealth(),
-                imageGenerationAiClient.checkHealth(),
-                ragAiClient.checkHealth(),
-                musicRecommendationAiClient.checkHealth()
-        ).map(tuple -> {
-            boolean analysisHealthy = tuple.getT1();
-            boolean imageHealthy = tuple.getT2();
-            boolean ragHealthy = tuple.getT3();
-            boolean musicHealthy = tuple.getT4();
+    public Mono<ResponseEntity<Map<String, Object>>> health(
+            @RequestParam(defaultValue = "false") boolean live) {
+        log.debug("Health check request (live={})", live);
+
+        Mono<Map<String, UpstreamHealthMonitor.UpstreamHealth>> snapshot = live
+                ? upstreamHealthMonitor.refresh()
+                : Mono.fromSupplier(upstreamHealthMonitor::snapshot);
 
+        return snapshot.map(upstreams -> {
             Map<String, Object> health = new HashMap<>();
             health.put("status", "healthy");
             health.put("relayServer", "up");
 
             Map<String, Object> aiServers = new HashMap<>();
-
-            Map<String, Object> analysisAiHealth = new HashMap<>();
-            analysisAiHealth.put("status", analysisHealthy ? "up" : "down");
-            aiServers.put("analysisAi", analysisAiHealth);
-
-            Map<String, Object> imageAiHealth = new HashMap<>();
-            imageAiHealth.put("status", imageHealthy ? "up" : "down");
-            aiServers.put("imageGenerationAi", imageAiHealth);
-
-            Map<String, Object> ragAiHealth = new HashMap<>();
-            ragAiHealth.put("status", ragHealthy ? "up" : "down");
-            aiServers.put("ragAi", ragAiHealth);
-
-            Map<String, Object> musicAiHealth = new HashMap<>();
-            musicAiHealth.put("status", musicHealthy ? "up" : "down");
-            aiServers.put("musicAi", musicAiHealth);
+            aiServers.put("analysisAi", upstreamHealth(AiServerProperties.ANALYSIS, upstreams));
+            aiServers.put("imageGenerationAi", upstreamHealth(AiServerProperties.IMAGE_GENERATION, upstreams));
+            aiServers.put("ragAi", upstreamHealth(AiServerProperties.RAG, upstreams));
+            aiServers.put("musicAi", upstreamHealth(AiServerProperties.MUSIC, upstreams));
 
             health.put("aiServers", aiServers);
 
             return ResponseEntity.ok(health);
         });
     }
+
+    private Map<String, Object> upstreamHealth(String upstream,
+                                               Map<String, UpstreamHealthMonitor.UpstreamHealth> upstreams) {
+        UpstreamHealthMonitor.UpstreamHealth probe = upstreams.get(upstream);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("status", probe.getStatus());
+        result.put("circuitBreaker", circuitBreakerState(upstream));
+        if (probe.getLatencyMs() != null) {
+            result.put("latencyMs", probe.getLatencyMs());
+        }
+        if (probe.getLastCheckedAt() != null) {
+            result.put("lastCheckedAt", probe.getLastCheckedAt().toString());
+        }
+        if (probe.getLastSuccessAt() != null) {
+            result.put("lastSuccessAt", probe.getLastSuccessAt().toString());
+        }
+        return result;
+    }
+
+    private String circuitBreakerState(String upstream) {
+        return circuitBreakerRegistry.get(upstream).getState().name();
+    }
 }
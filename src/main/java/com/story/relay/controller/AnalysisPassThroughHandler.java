@@ -0,0 +1,94 @@
+package com.story.relay.controller;
+
+import com.story.relay.exception.AiServerException;
+import com.story.relay.exception.BulkheadFullException;
+import com.story.relay.exception.GlobalExceptionHandler;
+import com.story.relay.service.AnalysisAiClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+/**
+ * Raw pass-through for the schemaless analysis endpoints (/ai/analyze, /ai/generate,
+ * /ai/finalize-analysis, /ai/generate-next-episode)
+ * Request and response bodies are forwarded as DataBuffers instead of being decoded into Map and
+ * re-encoded; the only inspection is a streaming peek for the fields AiController logs.
+ * Registered by PassThroughRouterConfig when ai-servers.analysis.pass-through.enabled=true.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class AnalysisPassThroughHandler {
+
+    private static final Set<String> SIZE_FIELDS = Set.of("novelText", "novel_text");
+
+    private final AnalysisAiClient analysisAiClient;
+    private final GlobalExceptionHandler globalExceptionHandler;
+
+    public Mono<ServerResponse> analyze(ServerRequest request) {
+        return forward(request, "/analyze", "analyze");
+    }
+
+    public Mono<ServerResponse> generate(ServerRequest request) {
+        return forward(request, "/generate", "generate");
+    }
+
+    public Mono<ServerResponse> finalizeAnalysis(ServerRequest request) {
+        return forward(request, "/finalize-analysis", "finalizeAnalysis");
+    }
+
+    public Mono<ServerResponse> generateNextEpisode(ServerRequest request) {
+        return forward(request, "/generate-next-episode", "generateNextEpisode");
+    }
+
+    private Mono<ServerResponse> forward(ServerRequest request, String path, String operation) {
+        log.info("=== {} Request (pass-through) ===", operation);
+
+        JsonFieldPeek peek = new JsonFieldPeek(SIZE_FIELDS);
+        Flux<DataBuffer> body = request.bodyToFlux(DataBuffer.class)
+                .doOnNext(peek::feed)
+                .doOnComplete(() -> logRequest(operation, peek));
+
+        return analysisAiClient.forward(path, operation, body, request.headers().contentLength().orElse(-1))
+                .flatMap(upstream -> ServerResponse.status(upstream.getStatusCode())
+                        .contentType(upstream.getHeaders().getContentType() != null
+                                ? upstream.getHeaders().getContentType() : MediaType.APPLICATION_JSON)
+                        .body(BodyInserters.fromDataBuffers(upstream.getBody()
+                                .doOnComplete(() -> log.info("{} completed successfully", operation)))))
+                .onErrorResume(AiServerException.class, e ->
+                        toServerResponse(globalExceptionHandler.handleAiServerException(e, request.exchange())))
+                .onErrorResume(BulkheadFullException.class, e ->
+                        toServerResponse(globalExceptionHandler.handleBulkheadFullException(e, request.exchange())));
+    }
+
+    private void logRequest(String operation, JsonFieldPeek peek) {
+        log.info("{} request: {} bytes, keys: {}", operation, peek.getBytes(), peek.getTopLevelKeys());
+        for (String field : SIZE_FIELDS) {
+            Long size = peek.getFieldBytes(field);
+            if (size != null) {
+                log.info("{} size: {} bytes", field, size);
+            }
+        }
+        if (peek.isFailed()) {
+            log.warn("{} request body is not well-formed JSON; forwarded as-is", operation);
+        }
+    }
+
+    /**
+     * Router functions bypass @RestControllerAdvice, so reuse its responses explicitly
+     */
+    private Mono<ServerResponse> toServerResponse(ResponseEntity<?> entity) {
+        return ServerResponse.status(entity.getStatusCode())
+                .headers(headers -> headers.addAll(entity.getHeaders()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(entity.getBody());
+    }
+}
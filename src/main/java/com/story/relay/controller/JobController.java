@@ -0,0 +1,64 @@
+package com.story.relay.controller;
+
+import com.story.relay.dto.JobResponseDto;
+import com.story.relay.job.AiJob;
+import com.story.relay.job.AiJobService;
+import com.story.relay.job.JobOperation;
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Asynchronous job API for long-running analysis AI calls
+ * POST returns a job id immediately; clients poll GET for status and result
+ */
+@RestController
+@RequestMapping("/ai/jobs")
+@RequiredArgsConstructor
+@Slf4j
+public class JobController {
+
+    private final AiJobService aiJobService;
+
+    /**
+     * Submit an analysis AI operation as a background job
+     * Supported operations: analyze, analyze-from-s3, generate, generate-next-episode, finalize-analysis
+     */
+    @Operation(summary = "비동기 작업 제출")
+    @PostMapping("/{operation}")
+    public Mono<ResponseEntity<JobResponseDto>> submitJob(
+            @PathVariable String operation,
+            @RequestBody Map<String, Object> request) {
+        log.info("=== Submit Job Request ===");
+        log.info("Operation: {}, request keys: {}", operation, request.keySet());
+
+        return Mono.fromCallable(() -> JobOperation.fromPath(operation)
+                .map(jobOperation -> {
+                    AiJob job = aiJobService.submit(jobOperation, request);
+                    return ResponseEntity.status(HttpStatus.ACCEPTED).body(JobResponseDto.from(job));
+                })
+                .orElseGet(() -> {
+                    log.warn("Unknown job operation: {}", operation);
+                    return ResponseEntity.badRequest().build();
+                }));
+    }
+
+    /**
+     * Poll job status and result
+     */
+    @Operation(summary = "비동기 작업 상태 조회")
+    @GetMapping("/{jobId}")
+    public Mono<ResponseEntity<JobResponseDto>> getJob(@PathVariable String jobId) {
+        log.debug("Job status request: {}", jobId);
+
+        return Mono.just(aiJobService.find(jobId)
+                .map(job -> ResponseEntity.ok(JobResponseDto.from(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+}
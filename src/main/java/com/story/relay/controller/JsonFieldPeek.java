@@ -0,0 +1,162 @@
+package com.story.relay.controller;
+
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming look at a JSON body as its buffers flow past, without materializing it
+ * Collects the top-level field names and the encoded byte size of selected top-level string fields.
+ * This is a byte scanner rather than a JSON parser: string values are only counted, never decoded or
+ * buffered, so a multi-megabyte novelText costs no memory. Quotes and backslashes never occur inside
+ * UTF-8 multi-byte sequences, which is what makes scanning raw bytes safe.
+ * Buffers are read through views, so their read positions are left untouched for the downstream writer.
+ * Malformed input just stops the peek - validating the document is left to the upstream server.
+ */
+public class JsonFieldPeek {
+
+    private static final int MAX_KEYS = 64;
+    private static final int MAX_KEY_BYTES = 256;
+
+    private final Set<String> sizeFields;
+    private final List<String> topLevelKeys = new ArrayList<>();
+    private final Map<String, Long> fieldBytes = new LinkedHashMap<>();
+    private final ByteArrayOutputStream key = new ByteArrayOutputStream();
+
+    private int depth;
+    private long bytes;
+    private boolean topLevelObject;
+    private boolean expectKey;
+    private boolean inString;
+    private boolean escape;
+    private boolean capturingKey;
+    private boolean measuring;
+    private long stringStart;
+    private String currentKey;
+    private boolean failed;
+
+    public JsonFieldPeek(Set<String> sizeFields) {
+        this.sizeFields = sizeFields;
+    }
+
+    /**
+     * Inspect one body buffer; intended for use with doOnNext
+     */
+    public void feed(DataBuffer buffer) {
+        if (failed) {
+            bytes += buffer.readableByteCount();
+            return;
+        }
+        try (DataBuffer.ByteBufferIterator views = buffer.readableByteBuffers()) {
+            while (views.hasNext()) {
+                ByteBuffer view = views.next();
+                while (view.hasRemaining() && !failed) {
+                    scan(view.get());
+                }
+                bytes += view.remaining();
+            }
+        }
+    }
+
+    private void scan(byte b) {
+        bytes++;
+        if (inString) {
+            if (escape) {
+                escape = false;
+            } else if (b == '\\') {
+                escape = true;
+            } else if (b == '"') {
+                inString = false;
+                endString();
+                return;
+            }
+            if (capturingKey && key.size() < MAX_KEY_BYTES) {
+                key.write(b);
+            }
+            return;
+        }
+
+        switch (b) {
+            case '{', '[' -> {
+                if (depth == 0) {
+                    topLevelObject = b == '{';
+                }
+                depth++;
+                if (depth == 1) {
+                    expectKey = topLevelObject;
+                }
+            }
+            case '}', ']' -> {
+                depth--;
+                if (depth < 0) {
+                    failed = true;
+                }
+            }
+            case ',' -> {
+                if (depth == 1) {
+                    expectKey = topLevelObject;
+                }
+            }
+            case ':' -> {
+                if (depth == 1) {
+                    expectKey = false;
+                }
+            }
+            case '"' -> {
+                inString = true;
+                stringStart = bytes;
+                boolean topLevel = depth == 1 && topLevelObject;
+                capturingKey = topLevel && expectKey;
+                measuring = topLevel && !expectKey && currentKey != null && sizeFields.contains(currentKey);
+                key.reset();
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void endString() {
+        if (capturingKey) {
+            currentKey = key.toString(StandardCharsets.UTF_8);
+            if (topLevelKeys.size() < MAX_KEYS) {
+                topLevelKeys.add(currentKey);
+            }
+        } else if (measuring) {
+            // bytes already counts the closing quote
+            fieldBytes.put(currentKey, bytes - stringStart - 1);
+        }
+        capturingKey = false;
+        measuring = false;
+    }
+
+    public List<String> getTopLevelKeys() {
+        return Collections.unmodifiableList(topLevelKeys);
+    }
+
+    /**
+     * Encoded size in bytes (escapes included, quotes excluded) of a selected top-level string field,
+     * or null if absent
+     */
+    public Long getFieldBytes(String field) {
+        return fieldBytes.get(field);
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * True when the structure was broken or the body ended inside a string or an open container
+     */
+    public boolean isFailed() {
+        return failed || inString || depth != 0;
+    }
+}
@@ -26,6 +26,9 @@ public class ChatMessageRequestDto {
     @Size(max = 100, message = "Story ID must not exceed 100 characters")
     private String storyId;  // 스토리 ID (벡터 스토어 매칭용)
 
+    @Size(max = 100, message = "User ID must not exceed 100 characters")
+    private String userId;  // 플레이어 ID (릴레이 대화 이력 세션 키, 없으면 이력을 보관하지 않음)
+
     @NotBlank(message = "User message is required")
     @Size(max = 2000, message = "User message must not exceed 2000 characters")
     private String userMessage;
@@ -1,5 +1,6 @@
 package com.story.relay.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,4 +17,7 @@ public class ImageGenerationResponseDto {
     private String nodeId;
     private String fileKey;
     private String generatedAt;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;  // 배치 생성 시 개별 항목 실패 사유
 }
@@ -0,0 +1,36 @@
+package com.story.relay.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.story.relay.job.AiJob;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Status (and result, once finished) of an asynchronous AI job
+ */
+@Getter
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JobResponseDto {
+    private String jobId;
+    private String operation;
+    private String status;        // QUEUED, RUNNING, SUCCEEDED, FAILED
+    private Map<String, Object> result;
+    private String error;
+    private String createdAt;
+    private String updatedAt;
+
+    public static JobResponseDto from(AiJob job) {
+        return JobResponseDto.builder()
+                .jobId(job.getJobId())
+                .operation(job.getOperation().getPath())
+                .status(job.getStatus().name())
+                .result(job.getResult())
+                .error(job.getError())
+                .createdAt(job.getCreatedAt().toString())
+                .updatedAt(job.getUpdatedAt().toString())
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.story.relay.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * 서브트리 재생성 스트리밍 이벤트 (NDJSON 한 줄)
+ * node  - 재생성된 노드 하나 (children 없이 전달, 자식 노드는 각각 별도 이벤트로 도착)
+ * error - 한 분기의 재생성 실패 (다른 분기는 계속 진행)
+ * done  - 마지막 이벤트, 전체 재생성 노드 수
+ */
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SubtreeRegenerationEventDto {
+
+    public static final String NODE = "node";
+    public static final String ERROR = "error";
+    public static final String DONE = "done";
+
+    private String type;
+    private SubtreeRegenerationResponseDto.RegeneratedNode node;
+    private String parentId;
+    private Integer depth;
+    private String status;
+    private String message;
+    private Integer totalNodesRegenerated;
+
+    public static SubtreeRegenerationEventDto node(SubtreeRegenerationResponseDto.RegeneratedNode node,
+                                                   String parentId, Integer depth) {
+        return SubtreeRegenerationEventDto.builder()
+                .type(NODE)
+                .node(node)
+                .parentId(parentId)
+                .depth(depth)
+                .build();
+    }
+
+    public static SubtreeRegenerationEventDto error(String parentId, String message) {
+        return SubtreeRegenerationEventDto.builder()
+                .type(ERROR)
+                .parentId(parentId)
+                .message(message)
+                .build();
+    }
+
+    public static SubtreeRegenerationEventDto done(int totalNodesRegenerated, int failedBranches) {
+        return SubtreeRegenerationEventDto.builder()
+                .type(DONE)
+                .status(failedBranches == 0 ? "success" : "partial")
+                .totalNodesRegenerated(totalNodesRegenerated)
+                .message(failedBranches == 0 ? null : failedBranches + " branch(es) failed")
+                .build();
+    }
+}
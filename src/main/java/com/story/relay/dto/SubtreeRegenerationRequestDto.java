@@ -1,5 +1,6 @@
 package com.story.relay.dto;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
@@ -15,8 +16,13 @@ import java.util.Map;
  * 서브트리 재생성 요청 DTO (Relay Server → Python AI)
  */
 @Getter
-@Builder
+@Builder(toBuilder = true)
 public class SubtreeRegenerationRequestDto {
+    // 릴레이 내부용 - 저장된 분석 결과 조회 키 (AI 서버로는 전달하지 않음)
+    @Size(max = 100, message = "Story ID must not exceed 100 characters")
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private String storyId;
+
     @NotBlank(message = "Episode title is required")
     @Size(max = 200, message = "Episode title must not exceed 200 characters")
     private String episodeTitle;
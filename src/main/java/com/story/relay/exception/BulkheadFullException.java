@@ -0,0 +1,28 @@
+package com.story.relay.exception;
+
+import java.time.Duration;
+
+/**
+ * Thrown when an AI server bulkhead has no free permit and its wait queue is full
+ * (or the queued call waited longer than the configured max wait)
+ * Mapped to 503 Service Unavailable with a Retry-After header
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    private final String bulkheadName;
+    private final Duration retryAfter;
+
+    public BulkheadFullException(String bulkheadName, Duration retryAfter) {
+        super(String.format("[%s] Too many concurrent requests, try again later", bulkheadName));
+        this.bulkheadName = bulkheadName;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getBulkheadName() {
+        return bulkheadName;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,19 @@
+package com.story.relay.exception;
+
+/**
+ * Thrown when an Idempotency-Key is reused with a different request body
+ * Mapped to 422 Unprocessable Entity
+ */
+public class IdempotencyKeyReuseException extends RuntimeException {
+
+    private final String idempotencyKey;
+
+    public IdempotencyKeyReuseException(String idempotencyKey) {
+        super(String.format("Idempotency-Key '%s' was already used with a different request", idempotencyKey));
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+}
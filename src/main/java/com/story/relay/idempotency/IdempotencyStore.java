@@ -0,0 +1,188 @@
+package com.story.relay.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.story.relay.exception.IdempotencyKeyReuseException;
+import com.story.relay.metrics.RelayMetrics;
+import com.story.relay.resilience.SingleFlight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Short-lived response store backing the Idempotency-Key header on AI POST endpoints
+ * - repeat within the TTL: the stored response is replayed (Idempotent-Replayed: true)
+ * - concurrent duplicate: attaches to the original in-flight execution
+ * - same key with a different body: 422
+ * Completed responses are bounded by estimated serialized size, not entry count;
+ * failed executions are never stored so clients can simply retry - that includes 2xx answers a client
+ * produced from a fallback (mock image, canned reply, default music), flagged via RelayMetrics.FALLBACK_FLAG.
+ */
+@Component
+@Slf4j
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final ObjectMapper objectMapper;
+    private final SingleFlight singleFlight;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Cache<String, StoredResponse> completed;
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyStore(
+            ObjectMapper objectMapper,
+            SingleFlight singleFlight,
+            MeterRegistry meterRegistry,
+            @Value("${idempotency.enabled:true}") boolean enabled,
+            @Value("${idempotency.ttl:600000}") long ttlMillis,
+            @Value("${idempotency.max-memory-bytes:67108864}") long maxMemoryBytes) {
+        this.objectMapper = objectMapper;
+        this.singleFlight = singleFlight;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.completed = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .weigher((String key, StoredResponse stored) -> stored.weight())
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "idempotency");
+        log.info("Idempotency store initialized: enabled={}, ttl={}ms, maxMemory={} bytes",
+                enabled, ttlMillis, maxMemoryBytes);
+    }
+
+    /**
+     * Operator for use with transform(); the upstream Mono runs at most once per (route, Idempotency-Key)
+     * within the TTL. Without a key the call passes through untouched.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Function<Mono<ResponseEntity<T>>, Mono<ResponseEntity<T>>> idempotent(
+            String route, String idempotencyKey, Object request) {
+        if (!enabled || idempotencyKey == null || idempotencyKey.isBlank()) {
+            return Function.identity();
+        }
+
+        // Keys are client-supplied, so only their digest is held in memory
+        String key = route + ":" + SingleFlight.keyOf(idempotencyKey);
+        String fingerprint = fingerprint(request);
+
+        return call -> Mono.defer(() -> {
+            StoredResponse stored = completed.getIfPresent(key);
+            if (stored != null) {
+                return replay(route, idempotencyKey, fingerprint, stored);
+            }
+
+            AtomicReference<InFlight> self = new AtomicReference<>();
+            AtomicBoolean fallback = new AtomicBoolean();
+            Mono<ResponseEntity<?>> shared = call
+                    .<ResponseEntity<?>>map(response -> response)
+                    .doOnNext(response -> store(route, key, fingerprint, response, fallback.get()))
+                    .contextWrite(Context.of(RelayMetrics.FALLBACK_FLAG, fallback))
+                    .doFinally(signal -> inFlight.remove(key, self.get()))
+                    .share();
+            InFlight candidate = new InFlight(fingerprint, shared);
+            self.set(candidate);
+
+            InFlight existing = inFlight.putIfAbsent(key, candidate);
+            if (existing != null) {
+                checkFingerprint(idempotencyKey, existing.fingerprint(), fingerprint);
+                record(route, "joined");
+                log.info("Idempotency-Key {} on {} attached to in-flight execution", idempotencyKey, route);
+                return (Mono<ResponseEntity<T>>) (Mono<?>) existing.response();
+            }
+
+            // The original may have completed between the lookup and putIfAbsent
+            StoredResponse raced = completed.getIfPresent(key);
+            if (raced != null) {
+                inFlight.remove(key, candidate);
+                return replay(route, idempotencyKey, fingerprint, raced);
+            }
+
+            record(route, "executed");
+            return (Mono<ResponseEntity<T>>) (Mono<?>) shared;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Mono<ResponseEntity<T>> replay(String route, String idempotencyKey, String fingerprint,
+                                               StoredResponse stored) {
+        checkFingerprint(idempotencyKey, stored.fingerprint(), fingerprint);
+        record(route, "replayed");
+        log.info("Idempotency-Key {} on {} replayed from store", idempotencyKey, route);
+
+        ResponseEntity<?> original = stored.response();
+        return Mono.just((ResponseEntity<T>) ResponseEntity.status(original.getStatusCode())
+                .headers(headers -> {
+                    headers.addAll(original.getHeaders());
+                    headers.set(REPLAYED_HEADER, "true");
+                })
+                .body(original.getBody()));
+    }
+
+    private void checkFingerprint(String idempotencyKey, String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new IdempotencyKeyReuseException(idempotencyKey);
+        }
+    }
+
+    /**
+     * Digest of the canonical JSON body (keys sorted), so a retry whose Map body arrives with its
+     * keys in another order still matches; request DTOs do not all implement toString/equals
+     */
+    private String fingerprint(Object request) {
+        return singleFlight.requestKey(request);
+    }
+
+    private void store(String route, String key, String fingerprint, ResponseEntity<?> response, boolean fallback) {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return;
+        }
+        if (fallback) {
+            record(route, "fallback_not_stored");
+            return;
+        }
+        completed.put(key, new StoredResponse(fingerprint, response, estimateWeight(response)));
+    }
+
+    private int estimateWeight(ResponseEntity<?> response) {
+        try {
+            long bytes = objectMapper.writeValueAsBytes(response.getBody()).length + 256L;
+            return (int) Math.min(Integer.MAX_VALUE, bytes);
+        } catch (JsonProcessingException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    private void record(String route, String outcome) {
+        Counter.builder("relay.idempotency.requests")
+                .description("Requests carrying an Idempotency-Key by outcome")
+                .tag("route", route)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private record StoredResponse(String fingerprint, ResponseEntity<?> response, int weight) {
+    }
+
+    private record InFlight(String fingerprint, Mono<ResponseEntity<?>> response) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.story.relay.job;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Snapshot of an asynchronous AI job
+ * Immutable - state transitions are stored as new snapshots via toBuilder()
+ */
+@Getter
+@Builder(toBuilder = true)
+public class AiJob {
+    private final String jobId;
+    private final JobOperation operation;
+    private final JobStatus status;
+    private final Map<String, Object> result;
+    private final String error;
+    private final Instant createdAt;
+    private final Instant updatedAt;
+}
@@ -0,0 +1,137 @@
+package com.story.relay.job;
+
+import com.story.relay.service.AnalysisAiClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs long-running analysis AI calls as background jobs
+ * Callers receive a job id immediately and poll the job store for the result,
+ * so no inbound connection is held open for the duration of the LLM call
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AiJobService {
+
+    private final AnalysisAiClient analysisAiClient;
+    private final JobStore jobStore;
+
+    @Value("${jobs.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Value("${jobs.queue-capacity:100}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                maxConcurrent, maxConcurrent,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ai-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        log.info("AI job executor initialized: maxConcurrent={}, queueCapacity={}", maxConcurrent, queueCapacity);
+    }
+
+    /**
+     * Submit a job and return its initial (QUEUED) snapshot
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public AiJob submit(JobOperation operation, Map<String, Object> request) {
+        Instant now = Instant.now();
+        AiJob job = AiJob.builder()
+                .jobId(UUID.randomUUID().toString())
+                .operation(operation)
+                .status(JobStatus.QUEUED)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+        jobStore.save(job);
+
+        try {
+            executor.execute(() -> run(job, request));
+        } catch (RejectedExecutionException e) {
+            log.warn("Job queue is full, rejecting {} job {}", operation.getPath(), job.getJobId());
+            jobStore.save(job.toBuilder()
+                    .status(JobStatus.FAILED)
+                    .error("Job queue is full")
+                    .updatedAt(Instant.now())
+                    .build());
+            throw new RejectedExecutionException("Job queue is full, try again later", e);
+        }
+
+        log.info("Job submitted: {} ({})", job.getJobId(), operation.getPath());
+        return job;
+    }
+
+    public Optional<AiJob> find(String jobId) {
+        return jobStore.findById(jobId);
+    }
+
+    private void run(AiJob job, Map<String, Object> request) {
+        AiJob running = job.toBuilder()
+                .status(JobStatus.RUNNING)
+                .updatedAt(Instant.now())
+                .build();
+        jobStore.save(running);
+        log.info("Job started: {} ({})", job.getJobId(), job.getOperation().getPath());
+
+        try {
+            // Executor threads are dedicated to jobs, so blocking here never touches a Netty event loop
+            Map<String, Object> result = call(job.getOperation(), request).block();
+            jobStore.save(running.toBuilder()
+                    .status(JobStatus.SUCCEEDED)
+                    .result(result)
+                    .updatedAt(Instant.now())
+                    .build());
+            log.info("Job succeeded: {}", job.getJobId());
+        } catch (Exception e) {
+            jobStore.save(running.toBuilder()
+                    .status(JobStatus.FAILED)
+                    .error(e.getMessage())
+                    .updatedAt(Instant.now())
+                    .build());
+            log.error("Job failed: {} - {}", job.getJobId(), e.getMessage());
+        }
+    }
+
+    private Mono<Map<String, Object>> call(JobOperation operation, Map<String, Object> request) {
+        return switch (operation) {
+            case ANALYZE -> analysisAiClient.analyze(request);
+            case ANALYZE_FROM_S3 -> analysisAiClient.analyzeFromS3(request);
+            case GENERATE -> analysisAiClient.generate(request);
+            case GENERATE_NEXT_EPISODE -> analysisAiClient.generateNextEpisode(request);
+            case FINALIZE_ANALYSIS -> analysisAiClient.finalizeAnalysis(request);
+        };
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            log.info("AI job executor shut down");
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.story.relay.job;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Default in-process job store
+ * Finished jobs are evicted once they are older than jobs.ttl
+ */
+@Component
+@ConditionalOnProperty(name = "jobs.store", havingValue = "memory", matchIfMissing = true)
+@Slf4j
+public class InMemoryJobStore implements JobStore {
+
+    private final Map<String, AiJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${jobs.ttl:3600000}")
+    private long ttlMillis;
+
+    @Override
+    public void save(AiJob job) {
+        jobs.put(job.getJobId(), job);
+    }
+
+    @Override
+    public Optional<AiJob> findById(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    @Override
+    public int evictExpired() {
+        Instant threshold = Instant.now().minus(Duration.ofMillis(ttlMillis));
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.getStatus().isTerminal() && job.getUpdatedAt().isBefore(threshold));
+        return before - jobs.size();
+    }
+
+    @Scheduled(fixedDelayString = "${jobs.eviction-interval:60000}")
+    public void scheduledEviction() {
+        int evicted = evictExpired();
+        if (evicted > 0) {
+            log.info("Evicted {} expired jobs ({} remaining)", evicted, jobs.size());
+        }
+    }
+}
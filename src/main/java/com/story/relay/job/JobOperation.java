@@ -0,0 +1,32 @@
+package com.story.relay.job;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Long-running analysis AI operations that can be submitted as jobs
+ * Path values match the synchronous /ai/* endpoints
+ */
+public enum JobOperation {
+    ANALYZE("analyze"),
+    ANALYZE_FROM_S3("analyze-from-s3"),
+    GENERATE("generate"),
+    GENERATE_NEXT_EPISODE("generate-next-episode"),
+    FINALIZE_ANALYSIS("finalize-analysis");
+
+    private final String path;
+
+    JobOperation(String path) {
+        this.path = path;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public static Optional<JobOperation> fromPath(String path) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.path.equals(path))
+                .findFirst();
+    }
+}
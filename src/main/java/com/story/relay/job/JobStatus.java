@@ -0,0 +1,15 @@
+package com.story.relay.job;
+
+/**
+ * Lifecycle of an asynchronous AI job
+ */
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED;
+
+    public boolean isTerminal() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
@@ -0,0 +1,21 @@
+package com.story.relay.job;
+
+import java.util.Optional;
+
+/**
+ * Storage for asynchronous AI jobs
+ * The default implementation is {@link InMemoryJobStore}; register another JobStore bean
+ * (e.g. Redis-backed) and set jobs.store to replace it
+ */
+public interface JobStore {
+
+    void save(AiJob job);
+
+    Optional<AiJob> findById(String jobId);
+
+    /**
+     * Remove finished jobs that have not been updated within the TTL
+     * @return number of evicted jobs
+     */
+    int evictExpired();
+}
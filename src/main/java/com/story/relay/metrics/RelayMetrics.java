@@ -0,0 +1,110 @@
+package com.story.relay.metrics;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.handler.timeout.ReadTimeoutException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer instrumentation for upstream AI calls, tagged by upstream and operation
+ *
+ * relay.upstream.calls     - latency histogram, outcome=success|error|timeout|short_circuited|cancelled
+ * relay.upstream.timeouts  - calls that hit the Reactor or Netty read timeout
+ * relay.upstream.fallbacks - calls answered by a client fallback instead of the upstream
+ *
+ * A caller that must tell fallback answers apart (e.g. the idempotency store) puts an AtomicBoolean
+ * under FALLBACK_FLAG into the Reactor context; fallback() sets it.
+ *
+ * Bytes in/out per upstream URI come from Reactor Netty (reactor.netty.http.client.data.*)
+ */
+@Component
+@RequiredArgsConstructor
+public class RelayMetrics {
+
+    public static final String FALLBACK_FLAG = RelayMetrics.class.getName() + ".fallback";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Operator that times a Mono-based upstream call; use with transform()
+     */
+    public <T> Function<Mono<T>, Mono<T>> timed(String upstream, String operation) {
+        return source -> Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return source
+                    .doOnSuccess(value -> stop(sample, upstream, operation, "success"))
+                    .doOnError(e -> stop(sample, upstream, operation, outcome(upstream, operation, e)))
+                    .doOnCancel(() -> stop(sample, upstream, operation, "cancelled"));
+        });
+    }
+
+    /**
+     * Operator that times a streaming upstream call from subscription to completion
+     */
+    public <T> Function<Flux<T>, Flux<T>> timedFlux(String upstream, String operation) {
+        return source -> Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return source
+                    .doOnComplete(() -> stop(sample, upstream, operation, "success"))
+                    .doOnError(e -> stop(sample, upstream, operation, outcome(upstream, operation, e)))
+                    .doOnCancel(() -> stop(sample, upstream, operation, "cancelled"));
+        });
+    }
+
+    /**
+     * Fallback answer for onErrorResume/switchIfEmpty: counts it and raises FALLBACK_FLAG when present
+     */
+    public <T> Mono<T> fallback(String upstream, String operation, Supplier<T> value) {
+        return Mono.deferContextual(context -> {
+            recordFallback(upstream, operation);
+            context.<AtomicBoolean>getOrEmpty(FALLBACK_FLAG).ifPresent(flag -> flag.set(true));
+            return Mono.justOrEmpty(value.get());
+        });
+    }
+
+    public void recordFallback(String upstream, String operation) {
+        Counter.builder("relay.upstream.fallbacks")
+                .description("Upstream calls answered by a fallback response")
+                .tag("upstream", upstream)
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private String outcome(String upstream, String operation, Throwable e) {
+        if (e instanceof TimeoutException || e instanceof ReadTimeoutException
+                || e.getCause() instanceof ReadTimeoutException) {
+            Counter.builder("relay.upstream.timeouts")
+                    .description("Upstream calls that timed out")
+                    .tag("upstream", upstream)
+                    .tag("operation", operation)
+                    .register(meterRegistry)
+                    .increment();
+            return "timeout";
+        }
+        if (e instanceof CallNotPermittedException) {
+            return "short_circuited";
+        }
+        return "error";
+    }
+
+    private void stop(Timer.Sample sample, String upstream, String operation, String outcome) {
+        sample.stop(Timer.builder("relay.upstream.calls")
+                .description("Latency of calls to AI servers")
+                .tag("upstream", upstream)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,27 @@
+package com.story.relay.outbox;
+
+import com.story.relay.dto.CharacterIndexRequestDto;
+import com.story.relay.dto.CharacterSetRequestDto;
+import com.story.relay.dto.GameProgressUpdateRequestDto;
+import com.story.relay.dto.NovelIndexRequestDto;
+
+/**
+ * RAG server writes that go through the outbox
+ * Entries with the same ordering key are delivered one after another in log order
+ */
+public enum RagMutation {
+    INDEX_CHARACTER(CharacterIndexRequestDto.class),
+    SET_CHARACTER(CharacterSetRequestDto.class),
+    INDEX_NOVEL(NovelIndexRequestDto.class),
+    UPDATE_PROGRESS(GameProgressUpdateRequestDto.class);
+
+    private final Class<?> payloadType;
+
+    RagMutation(Class<?> payloadType) {
+        this.payloadType = payloadType;
+    }
+
+    public Class<?> getPayloadType() {
+        return payloadType;
+    }
+}
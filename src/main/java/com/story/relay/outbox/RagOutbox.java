@@ -0,0 +1,484 @@
+package com.story.relay.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.story.relay.dto.CharacterIndexRequestDto;
+import com.story.relay.dto.CharacterSetRequestDto;
+import com.story.relay.dto.GameProgressUpdateRequestDto;
+import com.story.relay.dto.NovelIndexRequestDto;
+import com.story.relay.exception.AiServerException;
+import com.story.relay.exception.BulkheadFullException;
+import com.story.relay.service.GameProgressPipeline;
+import com.story.relay.service.RagAiClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable write-behind outbox for RAG server writes (index/set character, index novel, game progress)
+ * append() returns once the mutation is fsync'd to the write-ahead log. Appends are group-committed:
+ * callers only queue their record, and a single writer thread - the only one touching the log -
+ * writes everything queued, forces the log once and then completes all of those callers.
+ * Delivery is per ordering key: each key has a lane that is queued as soon as it holds entries, and
+ * up to concurrency lanes deliver at once. Within a lane entries go strictly in log order (consecutive
+ * progress updates are handed to GameProgressPipeline together so they coalesce). A failed delivery is
+ * retried with backoff, then the lane steps aside for drain-interval without holding a slot, so a
+ * failing key never delays the others; after max-cycles failed rounds an entry is written to
+ * dead-letter.jsonl and skipped.
+ * The log checkpoint only moves past contiguously settled entries, so anything unsettled at shutdown or
+ * crash is redelivered after restart - at-least-once. Character and novel indexing are upserts, but
+ * /api/ai/update appends, so a redelivered progress update is recorded twice upstream.
+ */
+@Component
+@Slf4j
+public class RagOutbox {
+
+    private static final String DEAD_LETTER = "dead-letter.jsonl";
+
+    // Lanes are scheduled from whichever thread appended to them or finished their last run
+    private static final Sinks.EmitFailureHandler EMIT_RETRY = Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1));
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final RagAiClient ragAiClient;
+    private final GameProgressPipeline gameProgressPipeline;
+    private final WriteAheadLog wal;
+    private final Path directory;
+
+    private final Queue<Append> appends = new ConcurrentLinkedQueue<>();
+    private final Scheduler writer = Schedulers.newSingle("rag-outbox-wal");
+    private final AtomicLong checkpointTarget = new AtomicLong();
+    private final DistributionSummary commitSize;
+    private final int maxRecordBytes;
+
+    // Every undelivered entry in log order (for the checkpoint), and the same entries split per ordering key
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final Sinks.Many<Lane> ready = Sinks.many().unicast().onBackpressureBuffer();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Set<Long> settled = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Integer> failedCycles = new ConcurrentHashMap<>();
+
+    @Value("${outbox.max-pending:10000}")
+    private int maxPending;
+
+    @Value("${outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${outbox.concurrency:8}")
+    private int concurrency;
+
+    @Value("${outbox.drain-interval:200}")
+    private long drainIntervalMillis;
+
+    @Value("${outbox.retry.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${outbox.retry.backoff:500}")
+    private long backoffMillis;
+
+    @Value("${outbox.retry.max-cycles:20}")
+    private int maxCycles;
+
+    private Disposable drainer;
+
+    public RagOutbox(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            RagAiClient ragAiClient,
+            GameProgressPipeline gameProgressPipeline,
+            @Value("${outbox.dir}") String dir,
+            @Value("${outbox.segment-bytes:16777216}") long segmentBytes,
+            @Value("${outbox.max-record-bytes:1048576}") int maxRecordBytes) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.ragAiClient = ragAiClient;
+        this.gameProgressPipeline = gameProgressPipeline;
+        if (dir.isBlank()) {
+            throw new IllegalStateException("outbox.dir must point to a persistent directory (RAG_OUTBOX_DIR)");
+        }
+        this.directory = Path.of(dir);
+        this.wal = new WriteAheadLog(directory, segmentBytes, maxRecordBytes);
+        this.maxRecordBytes = maxRecordBytes;
+        this.commitSize = DistributionSummary.builder("relay.outbox.commit.size")
+                .description("Appends made durable by one log fsync")
+                .register(meterRegistry);
+        Gauge.builder("relay.outbox.pending", pendingCount, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("relay.outbox.lanes", lanes, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        for (WriteAheadLog.Record record : wal.open()) {
+            JsonNode stored = objectMapper.readTree(record.payload());
+            pendingCount.incrementAndGet();
+            enqueue(new Entry(record.seq(),
+                    RagMutation.valueOf(stored.get("type").asText()),
+                    stored.get("key").asText(),
+                    stored.get("payload")));
+        }
+        if (pendingCount.get() > 0) {
+            log.info("Outbox recovered {} undelivered RAG mutation(s)", pendingCount.get());
+        }
+
+        drainer = ready.asFlux()
+                .flatMap(this::drainLane, concurrency)
+                .subscribe();
+        log.info("RAG outbox started: dir={}, batchSize={}, concurrency={}, drainInterval={}ms",
+                directory, batchSize, concurrency, drainIntervalMillis);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (drainer != null) {
+            drainer.dispose();
+        }
+        Mono.fromRunnable(() -> {
+                    commit();
+                    try {
+                        wal.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .subscribeOn(writer)
+                .block(Duration.ofSeconds(10));
+        writer.dispose();
+    }
+
+    /**
+     * Durably record a mutation; completes with its log sequence number once it is on disk
+     *
+     * @param key ordering key - mutations with the same key are delivered in append order
+     */
+    public Mono<Long> append(RagMutation type, String key, Object payload) {
+        return Mono.fromCallable(() -> {
+                    if (pendingCount.incrementAndGet() > maxPending) {
+                        pendingCount.decrementAndGet();
+                        count(type, "rejected");
+                        throw new BulkheadFullException("rag-outbox", Duration.ofSeconds(5));
+                    }
+                    try {
+                        return serialize(type, key, payload);
+                    } catch (IOException | RuntimeException e) {
+                        pendingCount.decrementAndGet();
+                        throw e;
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(append -> {
+                    appends.add(append);
+                    writer.schedule(this::commit);
+                    // Callers continue off the writer thread so it is free for the next group
+                    return append.done().asMono().publishOn(Schedulers.parallel());
+                });
+    }
+
+    private Append serialize(RagMutation type, String key, Object payload) throws IOException {
+        JsonNode tree = objectMapper.valueToTree(payload);
+        ObjectNode stored = objectMapper.createObjectNode()
+                .put("type", type.name())
+                .put("key", key);
+        stored.set("payload", tree);
+        byte[] bytes = objectMapper.writeValueAsBytes(stored);
+        if (bytes.length > maxRecordBytes) {
+            throw new IOException("Record of " + bytes.length + " bytes exceeds " + maxRecordBytes);
+        }
+        return new Append(type, key, tree, bytes, Sinks.one());
+    }
+
+    /**
+     * Writer task: write every queued append, force the log once, then complete those callers;
+     * a checkpoint requested by the drainer is written afterwards. Only ever runs on the writer thread.
+     */
+    private void commit() {
+        List<Append> batch = new ArrayList<>();
+        Append next;
+        while ((next = appends.poll()) != null) {
+            batch.add(next);
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+
+        long target = checkpointTarget.get();
+        if (target > wal.checkpointed()) {
+            try {
+                wal.checkpoint(target);
+            } catch (IOException e) {
+                // Entries stay settled in memory; only a restart would redeliver them
+                log.error("Failed to checkpoint outbox at #{}: {}", target, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void writeBatch(List<Append> batch) {
+        long[] seqs = new long[batch.size()];
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                seqs[i] = wal.write(batch.get(i).bytes());
+            }
+            wal.sync();
+        } catch (IOException e) {
+            log.error("Failed to write {} outbox entr(ies) to the log: {}", batch.size(), e.getMessage(), e);
+            for (Append append : batch) {
+                pendingCount.decrementAndGet();
+                count(append.type(), "failed");
+                append.done().tryEmitError(new UncheckedIOException(e));
+            }
+            return;
+        }
+
+        commitSize.record(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Append append = batch.get(i);
+            enqueue(new Entry(seqs[i], append.type(), append.key(), append.payload()));
+            count(append.type(), "appended");
+            append.done().tryEmitValue(seqs[i]);
+        }
+    }
+
+    /**
+     * Record a durable entry for the checkpoint and queue it on its key's lane
+     */
+    private void enqueue(Entry entry) {
+        pending.add(entry);
+        Lane lane = lanes.compute(entry.key(), (key, existing) -> {
+            Lane target = existing != null ? existing : new Lane(key);
+            target.entries.add(entry);
+            return target;
+        });
+        schedule(lane);
+    }
+
+    private void schedule(Lane lane) {
+        if (lane.scheduled.compareAndSet(false, true)) {
+            ready.emitNext(lane, EMIT_RETRY);
+        }
+    }
+
+    /**
+     * Hand the lane back; requeue it behind the other ready lanes if entries remain, otherwise drop it
+     */
+    private void release(Lane lane) {
+        lane.scheduled.set(false);
+        if (!lane.entries.isEmpty()) {
+            schedule(lane);
+            return;
+        }
+        lanes.computeIfPresent(lane.key, (key, current) ->
+                current == lane && current.entries.isEmpty() && !current.scheduled.get() ? null : current);
+    }
+
+    /**
+     * Deliver the next run of one lane. The lane holds a concurrency slot only while its run is in flight;
+     * after a failure it waits drain-interval outside the slot before its head is tried again.
+     */
+    private Mono<Void> drainLane(Lane lane) {
+        // A run fits in one pipeline call, so a retry only ever repeats the call that failed
+        List<Entry> run = lane.nextRun(Math.min(batchSize, gameProgressPipeline.getMaxBatch()));
+        if (run.isEmpty()) {
+            release(lane);
+            return Mono.empty();
+        }
+        return deliverRun(lane, run)
+                .thenReturn(true)
+                .onErrorResume(e -> {
+                    recordFailure(lane, run, e);
+                    return Mono.just(false);
+                })
+                .doOnNext(delivered -> {
+                    lane.dropDone();
+                    advance();
+                    if (delivered) {
+                        release(lane);
+                    } else {
+                        Mono.delay(Duration.ofMillis(drainIntervalMillis)).subscribe(tick -> release(lane));
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.error("Outbox lane {} failed: {}", lane.key, e.getMessage(), e);
+                    release(lane);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Void> deliverRun(Lane lane, List<Entry> run) {
+        return Mono.defer(() -> Flux.fromIterable(run)
+                        .filter(entry -> !lane.done.contains(entry.seq()))
+                        .flatMapSequential(entry -> dispatch(entry)
+                                .then(Mono.fromRunnable(() -> settle(lane, entry, "delivered"))), run.size())
+                        .then())
+                .retryWhen(Retry.backoff(maxAttempts - 1L, Duration.ofMillis(backoffMillis)));
+    }
+
+    private Mono<Void> dispatch(Entry entry) {
+        Object payload;
+        try {
+            payload = objectMapper.treeToValue(entry.payload(), entry.type().getPayloadType());
+        } catch (IOException e) {
+            return Mono.error(new UncheckedIOException(e));
+        }
+        return switch (entry.type()) {
+            case INDEX_CHARACTER -> accepted(entry, ragAiClient.indexCharacter((CharacterIndexRequestDto) payload));
+            case SET_CHARACTER -> accepted(entry, ragAiClient.setCharacter((CharacterSetRequestDto) payload));
+            case INDEX_NOVEL -> accepted(entry, ragAiClient.indexNovel((NovelIndexRequestDto) payload));
+            case UPDATE_PROGRESS -> gameProgressPipeline.submit((GameProgressUpdateRequestDto) payload);
+        };
+    }
+
+    private static Mono<Void> accepted(Entry entry, Mono<Boolean> call) {
+        return call.defaultIfEmpty(false)
+                .flatMap(success -> success
+                        ? Mono.<Void>empty()
+                        : Mono.<Void>error(new AiServerException("RAG-AI", entry.type() + " not applied for " + entry.key())));
+    }
+
+    private void recordFailure(Lane lane, List<Entry> run, Throwable error) {
+        for (Entry entry : run) {
+            if (lane.done.contains(entry.seq())) {
+                continue;
+            }
+            int cycles = failedCycles.merge(entry.seq(), 1, Integer::sum);
+            log.warn("Outbox delivery of #{} {} ({}) failed, cycle {}/{}: {}",
+                    entry.seq(), entry.type(), entry.key(), cycles, maxCycles, error.getMessage());
+            if (cycles >= maxCycles) {
+                deadLetter(entry, error);
+                settle(lane, entry, "dead-lettered");
+            }
+        }
+    }
+
+    private void settle(Lane lane, Entry entry, String outcome) {
+        lane.done.add(entry.seq());
+        settled.add(entry.seq());
+        count(entry.type(), outcome);
+    }
+
+    /**
+     * Drop the settled prefix of the queue and have the writer move the log checkpoint behind it
+     */
+    private void advance() {
+        long last = -1;
+        Entry head;
+        while ((head = pending.peek()) != null && settled.remove(head.seq())) {
+            pending.poll();
+            pendingCount.decrementAndGet();
+            failedCycles.remove(head.seq());
+            last = head.seq();
+        }
+        if (last < 0) {
+            return;
+        }
+        checkpointTarget.accumulateAndGet(last, Math::max);
+        writer.schedule(this::commit);
+    }
+
+    private void deadLetter(Entry entry, Throwable error) {
+        ObjectNode line = objectMapper.createObjectNode()
+                .put("seq", entry.seq())
+                .put("type", entry.type().name())
+                .put("key", entry.key())
+                .put("error", String.valueOf(error.getMessage()));
+        line.set("payload", entry.payload());
+        try {
+            byte[] bytes = (objectMapper.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8);
+            synchronized (this) {
+                Files.write(directory.resolve(DEAD_LETTER), bytes,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+            }
+            log.error("Outbox entry #{} {} ({}) moved to {}", entry.seq(), entry.type(), entry.key(), DEAD_LETTER);
+        } catch (IOException e) {
+            log.error("Failed to dead-letter outbox entry #{}: {}", entry.seq(), e.getMessage(), e);
+        }
+    }
+
+    private void count(RagMutation type, String outcome) {
+        Counter.builder("relay.outbox.entries")
+                .tag("type", type.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private record Entry(long seq, RagMutation type, String key, JsonNode payload) {
+    }
+
+    /**
+     * Undelivered entries of one ordering key, in log order; only the lane's current drainer removes them
+     */
+    private static final class Lane {
+        final String key;
+        final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        // Settled entries still at the head of the queue (a run can partly succeed)
+        final Set<Long> done = ConcurrentHashMap.newKeySet();
+
+        Lane(String key) {
+            this.key = key;
+        }
+
+        /**
+         * Consecutive progress updates at the head, at most maxRun of them, form one run (submitted
+         * together so the pipeline coalesces them into one call); any other mutation is a run of its own
+         */
+        List<Entry> nextRun(int maxRun) {
+            List<Entry> run = new ArrayList<>();
+            for (Entry entry : entries) {
+                boolean joins = run.isEmpty()
+                        || entry.type() == RagMutation.UPDATE_PROGRESS && run.get(0).type() == RagMutation.UPDATE_PROGRESS;
+                if (!joins || run.size() >= maxRun) {
+                    break;
+                }
+                run.add(entry);
+            }
+            return run;
+        }
+
+        /**
+         * Remove the settled head; a failed entry and everything behind it stay queued in order
+         */
+        void dropDone() {
+            Entry head;
+            while ((head = entries.peek()) != null && done.remove(head.seq())) {
+                entries.poll();
+            }
+        }
+    }
+
+    private record Append(RagMutation type, String key, JsonNode payload, byte[] bytes, Sinks.One<Long> done) {
+    }
+}
@@ -0,0 +1,253 @@
+package com.story.relay.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, segment-rotated log of opaque records
+ * Record layout: [length int][crc32c int][seq long][payload]. Written records are durable once sync()
+ * returns, so a caller can force a whole group of writes at once (group commit). Segments are named
+ * after their first sequence number and rotated at segment-bytes;
+ * a checkpoint file holds the highest sequence known to be consumed, and segments wholly at or below
+ * it are deleted. On open, a torn or corrupt tail of the last segment is truncated. The directory
+ * itself is fsync'd after a segment is created and after the checkpoint is renamed into place, so
+ * neither entry can vanish in a crash.
+ * Not thread-safe - the owner runs every call on one writer.
+ */
+@Slf4j
+class WriteAheadLog implements Closeable {
+
+    private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final Pattern SEGMENT = Pattern.compile("\\d{20}\\.wal");
+    private static final String CHECKPOINT = "checkpoint";
+
+    // Windows cannot open a directory as a channel; NTFS metadata updates are journaled instead
+    private static final boolean DIRECTORY_SYNC = !System.getProperty("os.name", "").startsWith("Windows");
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int maxRecordBytes;
+
+    private FileChannel active;
+    private long nextSeq;
+    private long checkpoint;
+
+    WriteAheadLog(Path directory, long segmentBytes, int maxRecordBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxRecordBytes = maxRecordBytes;
+    }
+
+    /**
+     * Open the log and return every record after the checkpoint, in sequence order
+     */
+    List<Record> open() throws IOException {
+        Files.createDirectories(directory);
+        checkpoint = readCheckpoint();
+        nextSeq = checkpoint + 1;
+
+        List<Record> records = new ArrayList<>();
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            boolean last = i == segments.size() - 1;
+            long end = read(segments.get(i), records, last);
+            if (last) {
+                active = FileChannel.open(segments.get(i), StandardOpenOption.WRITE);
+                active.truncate(end);
+                active.position(end);
+            }
+        }
+        if (!records.isEmpty()) {
+            nextSeq = Math.max(nextSeq, records.get(records.size() - 1).seq() + 1);
+        }
+        records.removeIf(record -> record.seq() <= checkpoint);
+        if (active == null) {
+            active = newSegment();
+        }
+        log.info("Write-ahead log opened: dir={}, segments={}, checkpoint={}, pending={}",
+                directory, Math.max(segments.size(), 1), checkpoint, records.size());
+        return records;
+    }
+
+    /**
+     * Write one record; it is only durable after the next sync()
+     *
+     * @return sequence number assigned to the record
+     */
+    long write(byte[] payload) throws IOException {
+        if (payload.length > maxRecordBytes) {
+            throw new IOException("Record of " + payload.length + " bytes exceeds " + maxRecordBytes);
+        }
+        if (active.position() >= segmentBytes) {
+            // Records of the full segment may still be unsynced
+            active.force(false);
+            active.close();
+            active = newSegment();
+        }
+
+        long seq = nextSeq;
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .putLong(seq)
+                .put(payload)
+                .flip();
+        while (buffer.hasRemaining()) {
+            active.write(buffer);
+        }
+        nextSeq = seq + 1;
+        return seq;
+    }
+
+    /**
+     * Force every record written so far to disk
+     */
+    void sync() throws IOException {
+        active.force(false);
+    }
+
+    /**
+     * Record that everything up to seq has been consumed and drop the segments that are fully behind it
+     */
+    void checkpoint(long seq) throws IOException {
+        if (seq <= checkpoint) {
+            return;
+        }
+        Path temp = directory.resolve(CHECKPOINT + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(Long.toString(seq).getBytes(StandardCharsets.US_ASCII)));
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        checkpoint = seq;
+
+        // A segment ends where the next one starts; the active (last) segment is never deleted
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (firstSeq(segments.get(i + 1)) - 1 <= seq) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    long checkpointed() {
+        return checkpoint;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (active != null) {
+            active.close();
+        }
+    }
+
+    /**
+     * Read records of one segment; returns the offset after the last intact record
+     */
+    private long read(Path segment, List<Record> records, boolean last) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (position + HEADER_BYTES <= size) {
+                header.clear();
+                readFully(channel, header, position);
+                header.flip();
+                int length = header.getInt();
+                int expectedCrc = header.getInt();
+                long seq = header.getLong();
+                if (length < 0 || length > maxRecordBytes || position + HEADER_BYTES + length > size) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(channel, payload, position + HEADER_BYTES);
+                CRC32C crc = new CRC32C();
+                crc.update(payload.array());
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                records.add(new Record(seq, payload.array()));
+                position += HEADER_BYTES + length;
+            }
+            if (position < size) {
+                if (last) {
+                    log.warn("Truncating torn tail of {} at offset {} ({} bytes)", segment, position, size - position);
+                } else {
+                    log.error("Corrupt record in {} at offset {}; {} bytes skipped", segment, position, size - position);
+                }
+            }
+            return position;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+            offset += read;
+        }
+    }
+
+    private FileChannel newSegment() throws IOException {
+        Path segment = directory.resolve(String.format("%020d.wal", nextSeq));
+        FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        syncDirectory();
+        return channel;
+    }
+
+    private void syncDirectory() throws IOException {
+        if (!DIRECTORY_SYNC) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> SEGMENT.matcher(file.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(file, StandardCharsets.US_ASCII).strip());
+    }
+
+    private static long firstSeq(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.indexOf('.')));
+    }
+
+    record Record(long seq, byte[] payload) {
+    }
+}
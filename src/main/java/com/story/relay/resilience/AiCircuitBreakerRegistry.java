@@ -0,0 +1,75 @@
+package com.story.relay.resilience;
+
+import com.story.relay.config.AiServerProperties;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.List;
+
+/**
+ * One circuit breaker per AI server, configured from ai-servers.&lt;name&gt;.circuit-breaker.*
+ * While a breaker is open, calls fail immediately with CallNotPermittedException so the
+ * clients' existing fallbacks answer without waiting for the upstream timeout
+ */
+@Component
+@Slf4j
+public class AiCircuitBreakerRegistry {
+
+    private final CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
+
+    public AiCircuitBreakerRegistry(AiServerProperties aiServerProperties, MeterRegistry meterRegistry) {
+        for (String name : List.of(AiServerProperties.ANALYSIS, AiServerProperties.IMAGE_GENERATION,
+                AiServerProperties.RAG, AiServerProperties.MUSIC)) {
+            AiServerProperties.CircuitBreakerSettings settings = aiServerProperties.get(name).getCircuitBreaker();
+
+            CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                    .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                    .slidingWindowSize(settings.getSlidingWindowSize())
+                    .minimumNumberOfCalls(settings.getMinimumNumberOfCalls())
+                    .failureRateThreshold(settings.getFailureRateThreshold())
+                    .slowCallRateThreshold(settings.getSlowCallRateThreshold())
+                    .slowCallDurationThreshold(settings.getSlowCallDurationThreshold())
+                    .waitDurationInOpenState(settings.getWaitDurationInOpenState())
+                    .permittedNumberOfCallsInHalfOpenState(settings.getPermittedNumberOfCallsInHalfOpenState())
+                    .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                    .recordException(AiCircuitBreakerRegistry::isUpstreamFailure)
+                    .build();
+
+            CircuitBreaker circuitBreaker = registry.circuitBreaker(name, config);
+            circuitBreaker.getEventPublisher().onStateTransition(event ->
+                    log.warn("Circuit breaker '{}' state transition: {}", name, event.getStateTransition()));
+
+            log.info("Circuit breaker '{}' initialized: window={}, failureRate={}%, slowCall>{}",
+                    name, settings.getSlidingWindowSize(), settings.getFailureRateThreshold(),
+                    settings.getSlowCallDurationThreshold());
+        }
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+    }
+
+    public CircuitBreaker get(String name) {
+        return registry.find(name)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown circuit breaker: " + name));
+    }
+
+    /**
+     * Reactor operator for use with transformDeferred()
+     */
+    public <T> CircuitBreakerOperator<T> operator(String name) {
+        return CircuitBreakerOperator.of(get(name));
+    }
+
+    /**
+     * 4xx responses mean our request was bad, not that the upstream is unhealthy
+     */
+    private static boolean isUpstreamFailure(Throwable e) {
+        return !(e instanceof WebClientResponseException wcre && wcre.getStatusCode().is4xxClientError());
+    }
+}
@@ -0,0 +1,146 @@
+package com.story.relay.resilience;
+
+import com.story.relay.exception.BulkheadFullException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Non-blocking concurrency limiter for one AI server
+ * At most maxConcurrentCalls decorated publishers run at once; up to maxQueueSize more wait
+ * (at most maxWaitDuration) for a permit. Anything beyond that fails fast with BulkheadFullException.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final int maxQueueSize;
+    private final Duration maxWaitDuration;
+    private final Duration retryAfter;
+
+    private final Object lock = new Object();
+    private final Deque<Waiter> waiting = new ArrayDeque<>();
+    private int activeCalls;
+
+    private final AtomicLong rejectedCalls = new AtomicLong();
+
+    public Bulkhead(String name, int maxConcurrentCalls, int maxQueueSize,
+                    Duration maxWaitDuration, Duration retryAfter) {
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxQueueSize = maxQueueSize;
+        this.maxWaitDuration = maxWaitDuration;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Run the source only while holding a permit; the permit is released on completion, error or cancel
+     */
+    public <T> Mono<T> decorate(Mono<T> source) {
+        return Mono.usingWhen(acquire(), permit -> source,
+                permit -> release(), (permit, e) -> release(), permit -> release());
+    }
+
+    public <T> Flux<T> decorate(Flux<T> source) {
+        return Flux.usingWhen(acquire(), permit -> source,
+                permit -> release(), (permit, e) -> release(), permit -> release());
+    }
+
+    private Mono<Boolean> acquire() {
+        return Mono.<Boolean>create(sink -> {
+                    Waiter waiter;
+                    synchronized (lock) {
+                        if (activeCalls < maxConcurrentCalls) {
+                            activeCalls++;
+                            waiter = null;
+                        } else if (waiting.size() < maxQueueSize) {
+                            waiter = new Waiter(sink);
+                            waiting.addLast(waiter);
+                        } else {
+                            rejectedCalls.incrementAndGet();
+                            sink.error(new BulkheadFullException(name, retryAfter));
+                            return;
+                        }
+                    }
+
+                    if (waiter == null) {
+                        sink.success(Boolean.TRUE);
+                        return;
+                    }
+
+                    sink.onCancel(() -> {
+                        if (waiter.claimed.compareAndSet(false, true)) {
+                            synchronized (lock) {
+                                waiting.remove(waiter);
+                            }
+                        } else {
+                            // A permit was handed over concurrently with the cancel - give it back
+                            releasePermit();
+                        }
+                    });
+                })
+                .timeout(maxWaitDuration, Mono.defer(() -> {
+                    rejectedCalls.incrementAndGet();
+                    return Mono.error(new BulkheadFullException(name, retryAfter));
+                }));
+    }
+
+    private Mono<Void> release() {
+        return Mono.fromRunnable(this::releasePermit);
+    }
+
+    private void releasePermit() {
+        Waiter next;
+        synchronized (lock) {
+            do {
+                next = waiting.pollFirst();
+            } while (next != null && !next.claimed.compareAndSet(false, true));
+
+            if (next == null) {
+                activeCalls--;
+                return;
+            }
+        }
+        // Permit is handed straight to the next waiter; activeCalls stays the same
+        next.sink.success(Boolean.TRUE);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public int getActiveCalls() {
+        synchronized (lock) {
+            return activeCalls;
+        }
+    }
+
+    public int getQueuedCalls() {
+        synchronized (lock) {
+            return waiting.size();
+        }
+    }
+
+    public long getRejectedCalls() {
+        return rejectedCalls.get();
+    }
+
+    private static final class Waiter {
+        private final MonoSink<Boolean> sink;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Waiter(MonoSink<Boolean> sink) {
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.story.relay.resilience;
+
+import com.story.relay.config.AiServerProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One bulkhead per AI server, configured from ai-servers.&lt;name&gt;.bulkhead.*
+ * Saturation is published as relay.bulkhead.* meters tagged with the bulkhead name
+ */
+@Component
+@Slf4j
+public class BulkheadRegistry {
+
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    public BulkheadRegistry(AiServerProperties aiServerProperties, MeterRegistry meterRegistry) {
+        for (String name : List.of(AiServerProperties.ANALYSIS, AiServerProperties.IMAGE_GENERATION,
+                AiServerProperties.RAG, AiServerProperties.MUSIC)) {
+            AiServerProperties.BulkheadSettings settings = aiServerProperties.get(name).getBulkhead();
+            Bulkhead bulkhead = new Bulkhead(name,
+                    settings.getMaxConcurrentCalls(),
+                    settings.getMaxQueueSize(),
+                    settings.getMaxWaitDuration(),
+                    settings.getRetryAfter());
+            bulkheads.put(name, bulkhead);
+            registerMetrics(bulkhead, meterRegistry);
+
+            log.info("Bulkhead '{}' initialized: maxConcurrentCalls={}, maxQueueSize={}, maxWait={}",
+                    name, settings.getMaxConcurrentCalls(), settings.getMaxQueueSize(), settings.getMaxWaitDuration());
+        }
+    }
+
+    public Bulkhead get(String name) {
+        Bulkhead bulkhead = bulkheads.get(name);
+        if (bulkhead == null) {
+            throw new IllegalArgumentException("Unknown bulkhead: " + name);
+        }
+        return bulkhead;
+    }
+
+    private void registerMetrics(Bulkhead bulkhead, MeterRegistry meterRegistry) {
+        Gauge.builder("relay.bulkhead.active.calls", bulkhead, Bulkhead::getActiveCalls)
+                .tag("name", bulkhead.getName())
+                .description("Calls currently holding a bulkhead permit")
+                .register(meterRegistry);
+        Gauge.builder("relay.bulkhead.queued.calls", bulkhead, Bulkhead::getQueuedCalls)
+                .tag("name", bulkhead.getName())
+                .description("Calls waiting for a bulkhead permit")
+                .register(meterRegistry);
+        Gauge.builder("relay.bulkhead.max.calls", bulkhead, Bulkhead::getMaxConcurrentCalls)
+                .tag("name", bulkhead.getName())
+                .description("Configured bulkhead concurrency limit")
+                .register(meterRegistry);
+        FunctionCounter.builder("relay.bulkhead.rejected.calls", bulkhead, Bulkhead::getRejectedCalls)
+                .tag("name", bulkhead.getName())
+                .description("Calls rejected because the bulkhead was saturated")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,149 @@
+package com.story.relay.resilience;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.story.relay.metrics.RelayMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces identical in-flight upstream calls
+ * Concurrent callers with the same group/key share one upstream Mono; the entry is removed
+ * as soon as that call terminates, so nothing is cached beyond the call itself.
+ *
+ * relay.singleflight.calls{group, role=leader|joined} - joined / total is the coalescing ratio
+ */
+@Component
+@Slf4j
+public class SingleFlight {
+
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper canonicalMapper;
+
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlight(MeterRegistry meterRegistry, ObjectMapper objectMapper) {
+        this.meterRegistry = meterRegistry;
+        this.canonicalMapper = objectMapper.copy()
+                .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+                .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+    }
+
+    /**
+     * Operator for use with transform(); the call is only started by the first subscriber for the key
+     */
+    public <T> Function<Mono<T>, Mono<T>> coalesce(String group, String key) {
+        return coalesce(group, () -> key);
+    }
+
+    /**
+     * Same as {@link #coalesce(String, String)} with the key computed per subscription, so an outer
+     * cache hit that never subscribes also never pays for hashing the request
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Function<Mono<T>, Mono<T>> coalesce(String group, Supplier<String> key) {
+        return source -> Mono.defer(() -> {
+            String flightKey = group + ":" + key.get();
+            AtomicReference<Flight> self = new AtomicReference<>();
+            AtomicBoolean fallback = new AtomicBoolean();
+            Mono<T> shared = source
+                    .contextWrite(Context.of(RelayMetrics.FALLBACK_FLAG, fallback))
+                    .doFinally(signal -> inFlight.remove(flightKey, self.get()))
+                    .share();
+            Flight candidate = new Flight(shared, fallback);
+            self.set(candidate);
+
+            Flight existing = inFlight.putIfAbsent(flightKey, candidate);
+            if (existing != null) {
+                record(group, "joined");
+                log.debug("Joined in-flight {} call: {}", group, flightKey);
+                return (Mono<T>) existing.join();
+            }
+
+            record(group, "leader");
+            return (Mono<T>) candidate.join();
+        });
+    }
+
+    /**
+     * Stable request key from the given parts (SHA-256, so large payloads make short keys)
+     */
+    public static String keyOf(Object... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Object part : parts) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Request key from the canonical JSON of a request (map entries and properties sorted), streamed
+     * straight into SHA-256 - unambiguous, unlike toString(), and without a copy of large payloads
+     */
+    public String requestKey(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+                canonicalMapper.writeValue(out, request);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize request key", e);
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * A shared upstream call; a fallback answer is flagged for every caller, not just the leader whose
+     * context the call runs in
+     */
+    private record Flight(Mono<?> response, AtomicBoolean fallback) {
+
+        Mono<?> join() {
+            return Mono.deferContextual(context -> response.doOnNext(value -> {
+                if (fallback.get()) {
+                    context.<AtomicBoolean>getOrEmpty(RelayMetrics.FALLBACK_FLAG).ifPresent(flag -> flag.set(true));
+                }
+            }));
+        }
+    }
+
+    private void record(String group, String role) {
+        Counter.builder("relay.singleflight.calls")
+                .description("Upstream calls by single-flight role (joined calls reused an in-flight request)")
+                .tag("group", group)
+                .tag("role", role)
+                .register(meterRegistry)
+                .increment();
+    }
+}
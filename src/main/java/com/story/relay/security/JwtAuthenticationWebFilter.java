@@ -1,5 +1,6 @@
 package com.story.relay.security;
 
+import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
@@ -14,6 +15,7 @@ import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
 import java.util.Collections;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
@@ -26,8 +28,11 @@ public class JwtAuthenticationWebFilter implements WebFilter {
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
         String token = resolveToken(exchange);
 
-        if (token != null && jwtTokenProvider.validateToken(token)) {
-            String username = jwtTokenProvider.getUsername(token);
+        // Single verification: claims come back from one parse (or the verified-claims cache)
+        Optional<Claims> claims = jwtTokenProvider.parseClaims(token);
+
+        if (claims.isPresent()) {
+            String username = claims.get().getSubject();
             log.debug("Valid JWT token for user: {}", username);
 
             UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
@@ -1,6 +1,11 @@
 package com.story.relay.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
@@ -10,6 +15,12 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * JWT Token Provider for relay-server
@@ -26,58 +37,94 @@ public class JwtTokenProvider {
     @Value("${jwt.access-token-validity}")
     private long accessTokenValidity;
 
+    @Value("${jwt.claims-cache.enabled:true}")
+    private boolean claimsCacheEnabled;
+
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private long claimsCacheMaxSize;
+
     private SecretKey secretKey;
 
+    private JwtParser jwtParser;
+
+    /**
+     * Verified claims keyed by SHA-256 of the token; each entry expires at the token's exp
+     */
+    private Cache<String, Claims> claimsCache;
+
     /**
      * Initialize secret key after properties are loaded
      */
     @PostConstruct
     protected void init() {
         this.secretKey = Keys.hmacShaKeyFor(secretKeyString.getBytes(StandardCharsets.UTF_8));
-        log.info("JWT TokenProvider initialized with HS256 algorithm");
+        // JwtParser is immutable and thread-safe, so build it once instead of per call
+        this.jwtParser = Jwts.parser()
+                .verifyWith(secretKey)
+                .build();
+        this.claimsCache = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaxSize)
+                .expireAfter(new ClaimsExpiry(accessTokenValidity))
+                .build();
+        log.info("JWT TokenProvider initialized with HS256 algorithm (claims cache: {})",
+                claimsCacheEnabled ? "max " + claimsCacheMaxSize : "disabled");
     }
 
     /**
-     * Validate JWT token
+     * Verify the token once and return its claims
+     * Repeated calls with the same token are served from the verified-claims cache until the token expires
      * @param token JWT token string
-     * @return true if token is valid, false otherwise
+     * @return claims if the token is valid, empty otherwise
      */
-    public boolean validateToken(String token) {
+    public Optional<Claims> parseClaims(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+
+        String cacheKey = claimsCacheEnabled ? hash(token) : null;
+        if (cacheKey != null) {
+            Claims cached = claimsCache.getIfPresent(cacheKey);
+            if (cached != null && !isExpired(cached)) {
+                return Optional.of(cached);
+            }
+        }
+
         try {
-            Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
-                    .parseSignedClaims(token);
+            Claims claims = jwtParser.parseSignedClaims(token).getPayload();
+            if (cacheKey != null) {
+                claimsCache.put(cacheKey, claims);
+            }
             log.debug("JWT token validation successful");
-            return true;
+            return Optional.of(claims);
         } catch (JwtException e) {
             log.warn("JWT token validation failed: {}", e.getMessage());
-            return false;
+            return Optional.empty();
         } catch (IllegalArgumentException e) {
             log.warn("JWT token is empty or malformed: {}", e.getMessage());
-            return false;
+            return Optional.empty();
         }
     }
 
+    /**
+     * Validate JWT token
+     * @param token JWT token string
+     * @return true if token is valid, false otherwise
+     */
+    public boolean validateToken(String token) {
+        return parseClaims(token).isPresent();
+    }
+
     /**
      * Extract username (subject) from JWT token
      * @param token JWT token string
      * @return username extracted from token
      */
     public String getUsername(String token) {
-        try {
-            String username = Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload()
-                    .getSubject();
-            log.debug("Extracted username from token: {}", username);
-            return username;
-        } catch (JwtException e) {
-            log.error("Failed to extract username from token: {}", e.getMessage());
-            throw new RuntimeException("Invalid JWT token", e);
-        }
+        String username = parseClaims(token)
+                .map(Claims::getSubject)
+                .orElseThrow(() -> new RuntimeException("Invalid JWT token"));
+        log.debug("Extracted username from token: {}", username);
+        return username;
     }
 
     /**
@@ -87,15 +134,52 @@ public class JwtTokenProvider {
      * @return true if token is expired
      */
     public boolean isTokenExpired(String token) {
+        return parseClaims(token).isEmpty();
+    }
+
+    private static boolean isExpired(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration != null && expiration.getTime() <= System.currentTimeMillis();
+    }
+
+    private static String hash(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(secretKey)
-                    .build()
-                    .parseSignedClaims(token);
-            return false;
-        } catch (JwtException e) {
-            log.debug("Token expired or invalid: {}", e.getMessage());
-            return true;
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Expire cached claims at the token's exp (or after the access token validity if it has none)
+     */
+    private static final class ClaimsExpiry implements Expiry<String, Claims> {
+
+        private final long defaultTtlNanos;
+
+        private ClaimsExpiry(long defaultTtlMillis) {
+            this.defaultTtlNanos = TimeUnit.MILLISECONDS.toNanos(defaultTtlMillis);
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            Date expiration = claims.getExpiration();
+            if (expiration == null) {
+                return defaultTtlNanos;
+            }
+            long remainingMillis = expiration.getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, claims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
         }
     }
 }
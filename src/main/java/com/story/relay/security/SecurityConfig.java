@@ -2,13 +2,23 @@ package com.story.relay.security;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
 import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
 import org.springframework.web.cors.reactive.CorsConfigurationSource;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
 
 @Configuration
 @EnableWebFluxSecurity
@@ -19,6 +29,9 @@ public class SecurityConfig {
     private final JwtAuthenticationWebFilter jwtAuthenticationWebFilter;
     private final CorsConfigurationSource corsConfigurationSource;
 
+    @Value("${management.scrape.allowed-networks:127.0.0.1/32,::1/128}")
+    private List<String> scrapeNetworks;
+
     @Bean
     public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
         log.info("Configuring SecurityWebFilterChain for relay-server (Reactive)");
@@ -41,6 +54,12 @@ public class SecurityConfig {
                                 "/swagger-resources/**"
                         ).permitAll()
 
+                        // Actuator endpoints (container health check)
+                        .pathMatchers("/actuator/health", "/actuator/info").permitAll()
+
+                        // Metrics - scrape network or an authenticated caller only
+                        .pathMatchers("/actuator/metrics/**", "/actuator/prometheus").access(scrapeNetworkOrAuthenticated())
+
                         // AI endpoints - permitAll for internal service communication
                         .pathMatchers("/ai/**").permitAll()
 
@@ -54,4 +73,30 @@ public class SecurityConfig {
         log.info("SecurityWebFilterChain configured successfully");
         return http.build();
     }
+
+    /**
+     * Allow requests from management.scrape.allowed-networks, otherwise require a JWT-authenticated caller
+     */
+    private ReactiveAuthorizationManager<AuthorizationContext> scrapeNetworkOrAuthenticated() {
+        List<IpAddressMatcher> networks = scrapeNetworks.stream()
+                .map(String::strip)
+                .filter(network -> !network.isEmpty())
+                .map(IpAddressMatcher::new)
+                .toList();
+        log.info("Metrics endpoints restricted to scrape networks {} or authenticated callers", scrapeNetworks);
+
+        return (authentication, context) -> {
+            InetSocketAddress remote = context.getExchange().getRequest().getRemoteAddress();
+            if (remote != null && remote.getAddress() != null) {
+                String address = remote.getAddress().getHostAddress();
+                if (networks.stream().anyMatch(network -> network.matches(address))) {
+                    return Mono.just(new AuthorizationDecision(true));
+                }
+            }
+            return authentication
+                    .map(auth -> auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken))
+                    .defaultIfEmpty(false)
+                    .map(AuthorizationDecision::new);
+        };
+    }
 }
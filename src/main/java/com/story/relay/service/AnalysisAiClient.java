@@ -1,12 +1,23 @@
 package com.story.relay.service;
 
+import com.story.relay.codec.SubtreeResponseDecoder;
+import com.story.relay.compression.RequestCompressionFilter;
+import com.story.relay.config.AiServerProperties;
+import com.story.relay.dto.SubtreeRegenerationEventDto;
 import com.story.relay.dto.SubtreeRegenerationRequestDto;
 import com.story.relay.dto.SubtreeRegenerationResponseDto;
 import com.story.relay.exception.AiServerException;
+import com.story.relay.metrics.RelayMetrics;
+import com.story.relay.resilience.AiCircuitBreakerRegistry;
+import com.story.relay.resilience.BulkheadRegistry;
+import com.story.relay.resilience.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
@@ -18,10 +29,17 @@ import java.util.Map;
 public class AnalysisAiClient {
 
     private final WebClient analysisAiWebClient;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final AiCircuitBreakerRegistry circuitBreakerRegistry;
+    private final RelayMetrics relayMetrics;
+    private final SingleFlight singleFlight;
+    private final SubtreeResponseDecoder subtreeResponseDecoder;
+    private final AnalysisResultCache analysisResultCache;
+    private final StoryContextStore storyContextStore;
 
     /**
      * Analyze novel text to extract summary, characters, and gauges
-     * Returns a reactive Mono for non-blocking execution
+     * Results are cached by normalized novel text, so re-runs of the same novel skip the AI server
      */
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> analyze(Map<String, Object> request) {
@@ -34,15 +52,21 @@ public class AnalysisAiClient {
             .bodyToMono(Map.class)
             .map(response -> (Map<String, Object>) response)
             .timeout(Duration.ofMinutes(10))
+            .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.ANALYSIS))
+            .transform(relayMetrics.timed(AiServerProperties.ANALYSIS, "analyze"))
             .doOnSuccess(response -> log.info("Novel analysis completed successfully"))
             .doOnError(e -> log.error("AI server error during analysis: {}", e.getMessage(), e))
             .onErrorMap(e -> new AiServerException("ANALYSIS-AI", "Analysis failed: " + e.getMessage(), e))
-            .switchIfEmpty(Mono.error(new AiServerException("ANALYSIS-AI", "No response from analysis AI server")));
+            .switchIfEmpty(Mono.error(new AiServerException("ANALYSIS-AI", "No response from analysis AI server")))
+            .transform(bulkheadRegistry.get(AiServerProperties.ANALYSIS)::decorate)
+            .transform(singleFlight.coalesce("analyze", () -> singleFlight.requestKey(request)))
+            .transform(analysisResultCache.cached("analyze", analysisResultCache.textKey(request)))
+            .doOnNext(response -> storyContextStore.remember(request, response));
     }
 
     /**
      * Analyze novel from S3
-     * Returns a reactive Mono for non-blocking execution
+     * Results are cached by bucket/key/ETag, so re-runs on an unchanged object skip the AI server
      */
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> analyzeFromS3(Map<String, Object> request) {
@@ -55,10 +79,16 @@ public class AnalysisAiClient {
             .bodyToMono(Map.class)
             .map(response -> (Map<String, Object>) response)
             .timeout(Duration.ofMinutes(10))
+            .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.ANALYSIS))
+            .transform(relayMetrics.timed(AiServerProperties.ANALYSIS, "analyzeFromS3"))
             .doOnSuccess(response -> log.info("S3 novel analysis completed successfully"))
             .doOnError(e -> log.error("AI server error during S3 analysis: {}", e.getMessage(), e))
             .onErrorMap(e -> new AiServerException("ANALYSIS-AI", "S3 analysis failed: " + e.getMessage(), e))
-            .switchIfEmpty(Mono.error(new AiServerException("ANALYSIS-AI", "No response from analysis AI server")));
+            .switchIfEmpty(Mono.error(new AiServerException("ANALYSIS-AI", "No response from analysis AI server")))
+            .transform(bulkheadRegistry.get(AiServerProperties.ANALYSIS)::decorate)
+            .transform(singleFlight.coalesce("analyzeFromS3", () -> singleFlight.requestKey(request)))
+            .transform(analysisResultCache.cached("analyzeFromS3", analysisResultCache.s3Key(request)))
+            .doOnNext(response -> storyContextStore.remember(request, response));
     }
 
     /**
@@ -76,31 +106,40 @@ public class AnalysisAiClient {
             .bodyToMono(Map.class)
             .map(response -> (Map<String, Object>) response)
             .timeout(Duration.ofMinutes(10))
+            .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.ANALYSIS))
+            .transform(relayMetrics.timed(AiServerProperties.ANALYSIS, "generate"))
             .doOnSuccess(response -> log.info("Story generation completed successfully"))
             .doOnError(e -> log.error("AI server error during generation: {}", e.getMessage(), e))
             .onErrorMap(e -> new AiServerException("ANALYSIS-AI", "Story generation failed: " + e.getMessage(), e))
-            .switchIfEmpty(Mono.error(new AiServerException("ANALYSIS-AI", "No response from analysis AI server")));
+            .switchIfEmpty(Mono.error(new AiServerException("ANALYSIS-AI", "No response from analysis AI server")))
+            .transform(bulkheadRegistry.get(AiServerProperties.ANALYSIS)::decorate)
+            .transform(singleFlight.coalesce("generate", () -> singleFlight.requestKey(request)));
     }
 
     /**
      * Generate next episode
-     * Returns a reactive Mono for non-blocking execution
+     * Summary/characters/gauges missing from the request are filled from the story context store
      */
     @SuppressWarnings("unchecked")
     public Mono<Map<String, Object>> generateNextEpisode(Map<String, Object> request) {
         log.info("Calling analysis AI server for next episode generation");
+        Map<String, Object> enriched = storyContextStore.enrich("generateNextEpisode", request);
 
         return analysisAiWebClient.post()
             .uri("/generate-next-episode")
-            .bodyValue(request)
+            .bodyValue(enriched)
             .retrieve()
             .bodyToMono(Map.class)
             .map(response -> (Map<String, Object>) response)
             .timeout(Duration.ofMinutes(10))
+            .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.ANALYSIS))
+            .transform(relayMetrics.timed(AiServerProperties.ANALYSIS, "generateNextEpisode"))
             .doOnSuccess(response -> log.info("Next episode generation completed successfully"))
             .doOnError(e -> log.error("AI server error during next episode generation: {}", e.getMessage(), e))
             .onErrorMap(e -> new AiServerException("ANALYSIS-AI", "Next episode generation failed: " + e.getMessage(), e))
-            .switchIfEmpty(Mono.error(new AiServerException("ANALYSIS-AI", "No response from analysis AI server")));
+            .switchIfEmpty(Mono.error(new AiServerException("ANALYSIS-AI", "No response from analysis AI server")))
+            .transform(bulkheadRegistry.get(AiServerProperties.ANALYSIS)::decorate)
+            .transform(singleFlight.coalesce("generateNextEpisode", () -> singleFlight.requestKey(request)));
     }
 
     /**
@@ -118,32 +157,97 @@ public class AnalysisAiClient {
             .bodyToMono(Map.class)
             .map(response -> (Map<String, Object>) response)
             .timeout(Duration.ofMinutes(10))
+            .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.ANALYSIS))
+            .transform(relayMetrics.timed(AiServerProperties.ANALYSIS, "finalizeAnalysis"))
             .doOnSuccess(response -> log.info("Final endings generation completed successfully"))
             .doOnError(e -> log.error("AI server error during finalize analysis: {}", e.getMessage(), e))
             .onErrorMap(e -> new AiServerException("ANALYSIS-AI", "Finalize analysis failed: " + e.getMessage(), e))
-            .switchIfEmpty(Mono.error(new AiServerException("ANALYSIS-AI", "No response from analysis AI server")));
+            .switchIfEmpty(Mono.error(new AiServerException("ANALYSIS-AI", "No response from analysis AI server")))
+            .transform(bulkheadRegistry.get(AiServerProperties.ANALYSIS)::decorate)
+            .transform(singleFlight.coalesce("finalizeAnalysis", () -> singleFlight.requestKey(request)))
+            .doOnNext(response -> storyContextStore.remember(request, response));
     }
 
     /**
      * Regenerate subtree from a modified node
-     * Returns a reactive Mono for non-blocking execution
+     * Summary/characters/gauges missing from the request are filled from the story context store
+     * The response tree is decoded incrementally as it arrives (no codec buffer limit, no recursion);
+     * node, depth and size limits come from ai-servers.analysis.subtree.decoder.*
      */
     public Mono<SubtreeRegenerationResponseDto> regenerateSubtree(SubtreeRegenerationRequestDto request) {
         log.info("Calling analysis AI server for subtree regeneration");
         log.info("Parent node: {}, current depth: {}, max depth: {}",
             request.getParentNode().getNodeId(), request.getCurrentDepth(), request.getMaxDepth());
 
+        SubtreeRegenerationRequestDto enriched = storyContextStore.enrich(request);
+
         return analysisAiWebClient.post()
             .uri("/regenerate-subtree")
-            .bodyValue(request)
+            .bodyValue(enriched)
             .retrieve()
-            .bodyToMono(SubtreeRegenerationResponseDto.class)
+            .bodyToFlux(DataBuffer.class)
+            .as(subtreeResponseDecoder::decodeTree)
             .timeout(Duration.ofMinutes(5))
+            .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.ANALYSIS))
+            .transform(relayMetrics.timed(AiServerProperties.ANALYSIS, "regenerateSubtree"))
             .doOnSuccess(response -> log.info("Subtree regeneration completed: {} nodes regenerated",
                 response.getTotalNodesRegenerated()))
             .doOnError(e -> log.error("AI server error during subtree regeneration: {}", e.getMessage(), e))
             .onErrorMap(e -> new AiServerException("ANALYSIS-AI", "Subtree regeneration failed: " + e.getMessage(), e))
-            .switchIfEmpty(Mono.error(new AiServerException("ANALYSIS-AI", "No response from analysis AI server")));
+            .switchIfEmpty(Mono.error(new AiServerException("ANALYSIS-AI", "No response from analysis AI server")))
+            .transform(bulkheadRegistry.get(AiServerProperties.ANALYSIS)::decorate);
+    }
+
+    /**
+     * Same call as regenerateSubtree, with the body decoded into node events as it arrives
+     * (see SubtreeResponseDecoder#decodeNodes) instead of being rebuilt into a tree
+     */
+    public Flux<SubtreeRegenerationEventDto> regenerateSubtreeNodes(SubtreeRegenerationRequestDto request) {
+        log.debug("Streaming subtree regeneration below node {} (depth {} -> {})",
+            request.getParentNode().getNodeId(), request.getCurrentDepth(), request.getMaxDepth());
+
+        SubtreeRegenerationRequestDto enriched = storyContextStore.enrich(request);
+
+        return analysisAiWebClient.post()
+            .uri("/regenerate-subtree")
+            .bodyValue(enriched)
+            .retrieve()
+            .bodyToFlux(DataBuffer.class)
+            .as(subtreeResponseDecoder::decodeNodes)
+            .timeout(Duration.ofMinutes(5))
+            .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.ANALYSIS))
+            .transform(relayMetrics.timedFlux(AiServerProperties.ANALYSIS, "regenerateSubtree"))
+            .doOnError(e -> log.error("AI server error during subtree regeneration: {}", e.getMessage(), e))
+            .onErrorMap(e -> new AiServerException("ANALYSIS-AI", "Subtree regeneration failed: " + e.getMessage(), e))
+            .transform(bulkheadRegistry.get(AiServerProperties.ANALYSIS)::decorate);
+    }
+
+    /**
+     * Forward a raw JSON body to the analysis AI server and hand back its raw response body
+     * Neither side is decoded; the resilience decorators cover the call up to the response headers,
+     * which the analysis server only sends once the result is ready.
+     */
+    public Mono<ResponseEntity<Flux<DataBuffer>>> forward(String path, String operation,
+                                                         Flux<DataBuffer> body, long contentLength) {
+        log.info("Forwarding raw request to analysis AI server: {}", path);
+
+        return analysisAiWebClient.post()
+            .uri(path)
+            .headers(headers -> {
+                if (contentLength >= 0) {
+                    headers.setContentLength(contentLength);
+                }
+            })
+            .attribute(RequestCompressionFilter.ONE_SHOT_BODY, true)
+            .body(body, DataBuffer.class)
+            .retrieve()
+            .toEntityFlux(DataBuffer.class)
+            .timeout(Duration.ofMinutes(10))
+            .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.ANALYSIS))
+            .transform(relayMetrics.timed(AiServerProperties.ANALYSIS, operation))
+            .doOnError(e -> log.error("AI server error during {}: {}", operation, e.getMessage(), e))
+            .onErrorMap(e -> new AiServerException("ANALYSIS-AI", operation + " failed: " + e.getMessage(), e))
+            .transform(bulkheadRegistry.get(AiServerProperties.ANALYSIS)::decorate);
     }
 
     /**
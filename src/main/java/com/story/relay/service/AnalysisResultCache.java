@@ -0,0 +1,337 @@
+package com.story.relay.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.story.relay.resilience.SingleFlight;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache of novel analysis results (/analyze, /analyze-from-s3)
+ * Keys are SHA-256 digests of the normalized novel text plus the remaining request fields, or of
+ * bucket/key/ETag for S3 novels - a changed object gets a new ETag and therefore a new key. storyId
+ * is left out of both, so the same novel analysed for a new story still hits.
+ * Two tiers: an in-memory tier bounded by serialized size, and a directory of JSON files that
+ * survives restarts (bounded by total size, oldest files pruned first). Disk I/O runs on
+ * boundedElastic; a failed disk read or write only costs a cache miss.
+ * Lookups are counted as relay.analysis.cache.lookups{operation, result=memory|disk|miss}
+ */
+@Component
+@Slf4j
+public class AnalysisResultCache {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+    private static final Pattern TRAILING_WHITESPACE = Pattern.compile("[ \\t\\x0B\\f]+(?=\\n)");
+    private static final List<String> TEXT_FIELDS = List.of("novelText", "novel_text");
+    private static final List<String> FILE_KEY_FIELDS = List.of("fileKey", "file_key");
+    // Only routes the result to a story (context store); the same novel under a new story must still hit
+    private static final List<String> STORY_ID_FIELDS = List.of("storyId", "story_id");
+    private static final String SUFFIX = ".json";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper canonicalMapper;
+    private final MeterRegistry meterRegistry;
+    private final S3UploadService s3UploadService;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Path directory;
+    private final long maxDiskBytes;
+    private final AtomicLong diskBytes = new AtomicLong();
+    private final Cache<String, byte[]> memory;
+
+    public AnalysisResultCache(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            S3UploadService s3UploadService,
+            @Value("${ai-servers.analysis.cache.enabled:true}") boolean enabled,
+            @Value("${ai-servers.analysis.cache.ttl:604800000}") long ttlMillis,
+            @Value("${ai-servers.analysis.cache.max-memory-bytes:134217728}") long maxMemoryBytes,
+            @Value("${ai-servers.analysis.cache.dir:${java.io.tmpdir}/relay-analysis-cache}") String dir,
+            @Value("${ai-servers.analysis.cache.max-disk-bytes:1073741824}") long maxDiskBytes) {
+        this.objectMapper = objectMapper;
+        this.canonicalMapper = objectMapper.copy().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        this.meterRegistry = meterRegistry;
+        this.s3UploadService = s3UploadService;
+        this.enabled = enabled;
+        this.ttl = Duration.ofMillis(ttlMillis);
+        this.directory = Path.of(dir);
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .weigher((String key, byte[] json) -> json.length)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, memory, "analysis-result");
+
+        if (enabled) {
+            openDirectory();
+        }
+        log.info("Analysis result cache initialized: enabled={}, dir={}, maxMemory={}B, maxDisk={}B, ttl={}ms",
+                enabled, directory, maxMemoryBytes, maxDiskBytes, ttlMillis);
+    }
+
+    /**
+     * Key for an /analyze request: normalized novel text plus the other request fields except storyId
+     * Empty when the request carries no novel text
+     */
+    public Mono<String> textKey(Map<String, Object> request) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> {
+            Map<String, Object> options = new TreeMap<>(request);
+            options.keySet().removeAll(STORY_ID_FIELDS);
+            String text = null;
+            for (String field : TEXT_FIELDS) {
+                Object value = options.remove(field);
+                if (text == null && value != null) {
+                    text = value.toString();
+                }
+            }
+            if (text == null) {
+                return null;
+            }
+            return SingleFlight.keyOf("text", normalize(text), canonicalMapper.writeValueAsString(options));
+        });
+    }
+
+    /**
+     * Key for an /analyze-from-s3 request: bucket, file key and the object's current ETag
+     * Empty when the request has no file key or the object cannot be inspected
+     */
+    public Mono<String> s3Key(Map<String, Object> request) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        String fileKey = firstString(request, FILE_KEY_FIELDS);
+        if (fileKey == null) {
+            return Mono.empty();
+        }
+        String bucket = firstString(request, List.of("bucket"));
+
+        return s3UploadService.objectETag(bucket, fileKey)
+                .flatMap(eTag -> Mono.fromCallable(() -> {
+                    Map<String, Object> options = new TreeMap<>(request);
+                    options.keySet().removeAll(FILE_KEY_FIELDS);
+                    options.keySet().removeAll(STORY_ID_FIELDS);
+                    options.remove("bucket");
+                    return SingleFlight.keyOf("s3", bucket, fileKey, eTag, canonicalMapper.writeValueAsString(options));
+                }))
+                .onErrorResume(e -> {
+                    log.warn("Analysis cache bypassed, S3 object not inspectable ({}): {}", fileKey, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Serve the analysis from the cache, otherwise run the upstream call and store its result
+     * An empty key means the request is not cacheable and goes straight upstream
+     */
+    public Function<Mono<Map<String, Object>>, Mono<Map<String, Object>>> cached(String operation, Mono<String> key) {
+        return upstream -> key
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(cacheKey -> cacheKey
+                        .map(k -> lookup(operation, k)
+                                .switchIfEmpty(Mono.defer(() -> upstream.doOnNext(result -> store(k, result)))))
+                        .orElse(upstream));
+    }
+
+    private Mono<Map<String, Object>> lookup(String operation, String key) {
+        byte[] inMemory = memory.getIfPresent(key);
+        if (inMemory != null) {
+            count(operation, "memory");
+            return Mono.fromCallable(() -> objectMapper.readValue(inMemory, MAP_TYPE));
+        }
+        return Mono.fromCallable(() -> readDisk(key))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(onDisk -> {
+                    memory.put(key, onDisk);
+                    count(operation, "disk");
+                    return Mono.fromCallable(() -> objectMapper.readValue(onDisk, MAP_TYPE));
+                })
+                .onErrorResume(e -> {
+                    log.warn("Analysis cache entry {} unreadable, treating as miss: {}", key, e.getMessage());
+                    return Mono.empty();
+                })
+                .switchIfEmpty(Mono.fromRunnable(() -> count(operation, "miss")));
+    }
+
+    private void store(String key, Map<String, Object> result) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(result);
+        } catch (IOException e) {
+            log.warn("Analysis result not cacheable: {}", e.getMessage());
+            return;
+        }
+        memory.put(key, json);
+        Mono.fromRunnable(() -> writeDisk(key, json))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(null, e -> log.warn("Failed to persist analysis cache entry {}: {}", key, e.getMessage()));
+    }
+
+    /**
+     * Returns null when there is no live entry; expired files are deleted on the way
+     */
+    private byte[] readDisk(String key) throws IOException {
+        Path file = fileFor(key);
+        try {
+            if (isExpired(Files.getLastModifiedTime(file))) {
+                delete(file);
+                return null;
+            }
+            return Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, byte[] json) {
+        Path file = fileFor(key);
+        try {
+            Path temp = Files.createTempFile(directory, key, ".tmp");
+            Files.write(temp, json);
+            long previous = Files.exists(file) ? Files.size(file) : 0;
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (diskBytes.addAndGet(json.length - previous) > maxDiskBytes) {
+                prune();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Delete expired files, then the oldest ones until the store is back under 90% of its limit
+     */
+    private synchronized void prune() {
+        long target = maxDiskBytes / 10 * 9;
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> oldestFirst = files
+                    .filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(AnalysisResultCache::lastModified))
+                    .toList();
+            for (Path file : oldestFirst) {
+                if (diskBytes.get() <= target && !isExpired(lastModified(file))) {
+                    break;
+                }
+                delete(file);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to prune analysis cache directory: {}", e.getMessage());
+        }
+    }
+
+    private void openDirectory() {
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(file -> {
+                    if (file.getFileName().toString().endsWith(SUFFIX)) {
+                        diskBytes.addAndGet(size(file));
+                    } else {
+                        delete(file);   // 이전 실행에서 남은 임시 파일
+                    }
+                });
+            }
+            prune();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open analysis cache directory " + directory, e);
+        }
+    }
+
+    private void delete(Path file) {
+        long size = size(file);
+        try {
+            if (Files.deleteIfExists(file) && file.getFileName().toString().endsWith(SUFFIX)) {
+                diskBytes.addAndGet(-size);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete analysis cache file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private boolean isExpired(FileTime modified) {
+        return modified.toInstant().plus(ttl).isBefore(Instant.now());
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private void count(String operation, String result) {
+        Counter.builder("relay.analysis.cache.lookups")
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * NFC, LF line endings, no trailing spaces per line, stripped
+     * Re-uploads and editor re-saves of the same novel normalize to the same text
+     */
+    static String normalize(String text) {
+        String unified = Normalizer.normalize(text, Normalizer.Form.NFC)
+                .replace("\r\n", "\n")
+                .replace('\r', '\n');
+        return TRAILING_WHITESPACE.matcher(unified + "\n").replaceAll("").strip();
+    }
+
+    private static String firstString(Map<String, Object> request, List<String> fields) {
+        for (String field : fields) {
+            Object value = request.get(field);
+            if (value != null && !value.toString().isBlank()) {
+                return value.toString();
+            }
+        }
+        return null;
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
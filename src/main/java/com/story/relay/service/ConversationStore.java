@@ -0,0 +1,248 @@
+package com.story.relay.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.story.relay.dto.ChatMessageRequestDto;
+import com.story.relay.dto.ChatMessageRequestDto.ConversationMessage;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Relay-side character chat history, one session per (userId, story, character)
+ * The session is keyed on the player id the caller puts in the request - /ai/** is open, so the
+ * security context cannot tell players apart; requests without a userId keep no history at all.
+ * Each call forwards a compact history: at most max-turns recent messages that fit the token budget,
+ * which shrinks as the requested maxTokens grows so history + reply stay within context-tokens.
+ * Messages pushed out of the stored window are optionally folded into a short running summary that
+ * is sent as a leading system message. Tokens are estimated (Hangul/CJK ~1 per char, Latin ~4 chars).
+ * Sessions live in a Caffeine map bounded by estimated size and expire after idle-ttl; updates are
+ * per-key atomic, so there is no lock shared between sessions.
+ * A conversationHistory sent by the caller replaces the stored history for that session.
+ */
+@Component
+@Slf4j
+public class ConversationStore {
+
+    public static final String USER = "user";
+    public static final String ASSISTANT = "assistant";
+    public static final String SYSTEM = "system";
+
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    private final Cache<String, Session> sessions;
+    private final DistributionSummary forwardedTokens;
+    private final boolean enabled;
+    private final int maxTurns;
+    private final int maxStoredTurns;
+    private final int historyTokenBudget;
+    private final int contextTokens;
+    private final int defaultMaxTokens;
+    private final boolean summarize;
+    private final int summaryMaxChars;
+
+    public ConversationStore(
+            MeterRegistry meterRegistry,
+            @Value("${chat-history.enabled:true}") boolean enabled,
+            @Value("${chat-history.max-turns:20}") int maxTurns,
+            @Value("${chat-history.history-token-budget:2000}") int historyTokenBudget,
+            @Value("${chat-history.context-tokens:4096}") int contextTokens,
+            @Value("${chat-history.default-max-tokens:500}") int defaultMaxTokens,
+            @Value("${chat-history.summarize.enabled:true}") boolean summarize,
+            @Value("${chat-history.summarize.max-chars:800}") int summaryMaxChars,
+            @Value("${chat-history.max-memory-bytes:67108864}") long maxMemoryBytes,
+            @Value("${chat-history.idle-ttl:1800000}") long idleTtlMillis) {
+        this.enabled = enabled;
+        this.maxTurns = maxTurns;
+        this.maxStoredTurns = maxTurns * 2;
+        this.historyTokenBudget = historyTokenBudget;
+        this.contextTokens = contextTokens;
+        this.defaultMaxTokens = defaultMaxTokens;
+        this.summarize = summarize;
+        this.summaryMaxChars = summaryMaxChars;
+        this.sessions = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .weigher((String key, Session session) -> session.weight())
+                .expireAfterAccess(Duration.ofMillis(idleTtlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, "chat-history");
+        this.forwardedTokens = DistributionSummary.builder("relay.chat.history.tokens")
+                .description("Estimated tokens of history forwarded per chat call")
+                .register(meterRegistry);
+        log.info("Conversation store initialized: enabled={}, maxTurns={}, historyBudget={}, contextTokens={}, idleTtl={}ms",
+                enabled, maxTurns, historyTokenBudget, contextTokens, idleTtlMillis);
+    }
+
+    /**
+     * Resolve the session for request.userId and build the history to forward
+     */
+    public Mono<Conversation> prepare(ChatMessageRequestDto request) {
+        return Mono.fromSupplier(() -> prepare(request.getUserId(), request));
+    }
+
+    private Conversation prepare(String userId, ChatMessageRequestDto request) {
+        int maxTokens = request.getMaxTokens() != null ? request.getMaxTokens() : defaultMaxTokens;
+        String key = enabled && userId != null && !userId.isBlank()
+                ? userId + "|" + request.getStoryId() + "|" + request.getCharacterId()
+                : null;
+
+        Session session;
+        if (request.getConversationHistory() != null && !request.getConversationHistory().isEmpty()) {
+            session = Session.EMPTY.append(toTurns(request.getConversationHistory()), maxStoredTurns, summarize, summaryMaxChars);
+            if (key != null) {
+                sessions.put(key, session);
+            }
+        } else {
+            session = key != null ? sessions.getIfPresent(key) : null;
+        }
+
+        int budget = Math.min(historyTokenBudget, contextTokens - maxTokens - estimateTokens(request.getUserMessage()));
+        List<ConversationMessage> history = session != null ? window(session, budget) : List.of();
+        return new Conversation(key, history, maxTokens);
+    }
+
+    /**
+     * Append a completed exchange; called only for real upstream replies, never for fallbacks
+     */
+    public void record(Conversation conversation, String userMessage, String reply) {
+        if (conversation.key() == null || reply == null || reply.isBlank()) {
+            return;
+        }
+        List<Turn> exchange = List.of(new Turn(USER, userMessage), new Turn(ASSISTANT, reply));
+        sessions.asMap().compute(conversation.key(), (key, session) ->
+                (session != null ? session : Session.EMPTY).append(exchange, maxStoredTurns, summarize, summaryMaxChars));
+    }
+
+    /**
+     * Newest turns first until max-turns or the budget is reached; the summary goes in front when it fits
+     */
+    private List<ConversationMessage> window(Session session, int budget) {
+        int remaining = budget;
+        String summary = session.summary();
+        if (summary != null) {
+            int summaryTokens = estimateTokens(summary);
+            if (summaryTokens <= remaining / 2) {
+                remaining -= summaryTokens;
+            } else {
+                summary = null;
+            }
+        }
+
+        Deque<ConversationMessage> selected = new ArrayDeque<>();
+        List<Turn> turns = session.turns();
+        for (int i = turns.size() - 1; i >= 0 && selected.size() < maxTurns; i--) {
+            Turn turn = turns.get(i);
+            int tokens = estimateTokens(turn.content());
+            if (tokens > remaining) {
+                break;
+            }
+            remaining -= tokens;
+            selected.addFirst(ConversationMessage.builder().role(turn.role()).content(turn.content()).build());
+        }
+        if (summary != null) {
+            selected.addFirst(ConversationMessage.builder().role(SYSTEM).content(summary).build());
+        }
+
+        forwardedTokens.record(budget - remaining);
+        return List.copyOf(selected);
+    }
+
+    private static List<Turn> toTurns(List<ConversationMessage> messages) {
+        List<Turn> turns = new ArrayList<>(messages.size());
+        for (ConversationMessage message : messages) {
+            turns.add(new Turn(message.getRole(), message.getContent()));
+        }
+        return turns;
+    }
+
+    static int estimateTokens(String text) {
+        if (text == null) {
+            return MESSAGE_OVERHEAD_TOKENS;
+        }
+        int latin = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 0x80) {
+                latin++;
+            } else {
+                other++;
+            }
+        }
+        return MESSAGE_OVERHEAD_TOKENS + other + (latin + 3) / 4;
+    }
+
+    /**
+     * History forwarded for one call; key is null when the relay does not keep history
+     */
+    public record Conversation(String key, List<ConversationMessage> history, int maxTokens) {
+    }
+
+    record Turn(String role, String content) {
+    }
+
+    /**
+     * Immutable snapshot; every append produces a new session so readers never see a partial update
+     */
+    record Session(List<Turn> turns, String summary) {
+
+        static final Session EMPTY = new Session(List.of(), null);
+
+        Session append(List<Turn> added, int maxStoredTurns, boolean summarize, int summaryMaxChars) {
+            List<Turn> all = new ArrayList<>(turns.size() + added.size());
+            all.addAll(turns);
+            all.addAll(added);
+            if (all.size() <= maxStoredTurns) {
+                return new Session(List.copyOf(all), summary);
+            }
+
+            int overflow = all.size() - maxStoredTurns;
+            String folded = summarize ? fold(summary, all.subList(0, overflow), summaryMaxChars) : null;
+            return new Session(List.copyOf(all.subList(overflow, all.size())), folded);
+        }
+
+        /**
+         * Extractive summary: the first sentence of each dropped turn, newest kept when over the limit
+         */
+        private static String fold(String summary, List<Turn> dropped, int maxChars) {
+            StringBuilder builder = new StringBuilder(summary != null ? summary : "이전 대화 요약:");
+            for (Turn turn : dropped) {
+                builder.append('\n').append(turn.role()).append(": ").append(firstSentence(turn.content()));
+            }
+            if (builder.length() <= maxChars) {
+                return builder.toString();
+            }
+            int cut = builder.indexOf("\n", builder.length() - maxChars);
+            return "이전 대화 요약:" + (cut >= 0 ? builder.substring(cut) : "");
+        }
+
+        private static String firstSentence(String content) {
+            String text = content.strip();
+            for (int i = 0; i < text.length() && i < 200; i++) {
+                char c = text.charAt(i);
+                if (c == '.' || c == '?' || c == '!' || c == '\n') {
+                    return text.substring(0, i + 1).strip();
+                }
+            }
+            return text.length() > 200 ? text.substring(0, 200) + "…" : text;
+        }
+
+        int weight() {
+            int chars = summary != null ? summary.length() : 0;
+            for (Turn turn : turns) {
+                chars += turn.content() != null ? turn.content().length() : 0;
+            }
+            return 64 + turns.size() * 32 + chars * 2;
+        }
+    }
+}
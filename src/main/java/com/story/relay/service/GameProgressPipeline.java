@@ -0,0 +1,223 @@
+package com.story.relay.service;
+
+import com.story.relay.dto.GameProgressUpdateRequestDto;
+import com.story.relay.exception.AiServerException;
+import com.story.relay.exception.BulkheadFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ordered, coalescing delivery of game progress updates, one lane per characterId
+ * An update only waits in its lane's queue; the first update of an idle lane opens a debounce window,
+ * and everything queued by the end of the window (up to max-batch) goes upstream as a single
+ * /api/ai/update call - contents joined in arrival order, metadata merged with later keys winning.
+ * A lane has at most one call in flight, so updates are never reordered; different characters
+ * proceed independently. Each submitter learns whether the call carrying its update succeeded; when a
+ * call fails, every update still queued behind it fails too instead of overtaking it, and an update
+ * whose submitter cancels is taken out of the queue, so a retrying caller never races its own leftovers.
+ * Lane hand-off is a CAS on a per-lane flag, and lanes are removed from the map once drained.
+ */
+@Component
+@Slf4j
+public class GameProgressPipeline {
+
+    private static final String SEPARATOR = "\n\n";
+
+    private final RagAiClient ragAiClient;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+    private final Duration debounce;
+    private final int maxBatch;
+    private final int maxPendingPerLane;
+    private final Counter enqueued;
+    private final Counter rejected;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary batchSize;
+
+    public GameProgressPipeline(
+            RagAiClient ragAiClient,
+            MeterRegistry meterRegistry,
+            @Value("${ai-servers.rag.progress.debounce:300}") long debounceMillis,
+            @Value("${ai-servers.rag.progress.max-batch:20}") int maxBatch,
+            @Value("${ai-servers.rag.progress.max-pending-per-lane:200}") int maxPendingPerLane) {
+        this.ragAiClient = ragAiClient;
+        this.meterRegistry = meterRegistry;
+        this.debounce = Duration.ofMillis(debounceMillis);
+        this.maxBatch = maxBatch;
+        this.maxPendingPerLane = maxPendingPerLane;
+        this.enqueued = Counter.builder("relay.progress.updates").tag("outcome", "enqueued").register(meterRegistry);
+        this.rejected = Counter.builder("relay.progress.updates").tag("outcome", "rejected").register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("relay.progress.batch.size")
+                .description("Updates coalesced into one upstream call")
+                .register(meterRegistry);
+        Gauge.builder("relay.progress.lanes", lanes, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Queue an update; the returned Mono completes once the (coalesced) call carrying it succeeded,
+     * and errors when that call failed or the character already has max-pending-per-lane updates waiting
+     */
+    public Mono<Void> submit(GameProgressUpdateRequestDto request) {
+        return Mono.defer(() -> {
+            Pending pending = new Pending(request, Sinks.empty());
+            boolean[] accepted = {false};
+            Lane lane = lanes.compute(request.getCharacterId(), (key, existing) -> {
+                Lane target = existing != null ? existing : new Lane(key);
+                if (target.size.get() < maxPendingPerLane) {
+                    target.pending.add(pending);
+                    target.size.incrementAndGet();
+                    accepted[0] = true;
+                }
+                return target;
+            });
+
+            if (!accepted[0]) {
+                rejected.increment();
+                return Mono.error(new BulkheadFullException("game-progress", debounce.multipliedBy(2)));
+            }
+            enqueued.increment();
+            schedule(lane);
+            return pending.done().asMono()
+                    .doOnCancel(() -> {
+                        if (lane.pending.remove(pending)) {
+                            lane.size.decrementAndGet();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Most updates one upstream call carries; a caller submitting at most this many at once gets them in one call
+     */
+    public int getMaxBatch() {
+        return maxBatch;
+    }
+
+    private void schedule(Lane lane) {
+        if (lane.scheduled.compareAndSet(false, true)) {
+            Mono.delay(debounce)
+                    .then(Mono.defer(() -> flush(lane)))
+                    .subscribe(null, e -> {
+                        log.error("Game progress lane {} failed: {}", lane.characterId, e.getMessage(), e);
+                        release(lane);
+                    }, () -> release(lane));
+        }
+    }
+
+    /**
+     * Hand the lane back; reschedule if updates arrived during the call, otherwise drop the empty lane
+     */
+    private void release(Lane lane) {
+        lane.scheduled.set(false);
+        if (!lane.pending.isEmpty()) {
+            schedule(lane);
+            return;
+        }
+        lanes.computeIfPresent(lane.characterId, (key, current) ->
+                current == lane && current.pending.isEmpty() && !current.scheduled.get() ? null : current);
+    }
+
+    private Mono<Boolean> flush(Lane lane) {
+        List<Pending> batch = new ArrayList<>();
+        Pending next;
+        while (batch.size() < maxBatch && (next = lane.pending.poll()) != null) {
+            batch.add(next);
+            lane.size.decrementAndGet();
+        }
+        if (batch.isEmpty()) {
+            return Mono.empty();
+        }
+        batchSize.record(batch.size());
+        log.debug("Flushing {} game progress update(s) for {}", batch.size(), lane.characterId);
+
+        return ragAiClient.updateGameProgress(coalesce(batch.stream().map(Pending::request).toList()))
+                .defaultIfEmpty(false)
+                .onErrorResume(e -> {
+                    log.warn("Game progress update for {} failed: {}", lane.characterId, e.getMessage());
+                    return Mono.just(false);
+                })
+                .doOnNext(success -> {
+                    Counter.builder("relay.progress.flushes")
+                            .tag("outcome", success ? "success" : "failed")
+                            .register(meterRegistry)
+                            .increment();
+                    for (Pending pending : batch) {
+                        if (success) {
+                            pending.done().tryEmitEmpty();
+                        } else {
+                            pending.done().tryEmitError(new AiServerException("RAG-AI",
+                                    "Game progress update failed for " + lane.characterId));
+                        }
+                    }
+                    if (!success) {
+                        failQueued(lane);
+                    }
+                });
+    }
+
+    /**
+     * Fail the updates queued behind a failed call; sending them would put them upstream ahead of it
+     */
+    private void failQueued(Lane lane) {
+        Pending queued;
+        while ((queued = lane.pending.poll()) != null) {
+            lane.size.decrementAndGet();
+            queued.done().tryEmitError(new AiServerException("RAG-AI",
+                    "Game progress update for " + lane.characterId + " queued behind a failed update"));
+        }
+    }
+
+    static GameProgressUpdateRequestDto coalesce(List<GameProgressUpdateRequestDto> batch) {
+        if (batch.size() == 1) {
+            return batch.get(0);
+        }
+        StringBuilder content = new StringBuilder();
+        Map<String, Object> metadata = new HashMap<>();
+        for (GameProgressUpdateRequestDto update : batch) {
+            if (content.length() > 0) {
+                content.append(SEPARATOR);
+            }
+            content.append(update.getContent());
+            if (update.getMetadata() != null) {
+                metadata.putAll(update.getMetadata());
+            }
+        }
+        metadata.put("coalesced", batch.size());
+        return GameProgressUpdateRequestDto.builder()
+                .characterId(batch.get(0).getCharacterId())
+                .content(content.toString())
+                .metadata(metadata)
+                .build();
+    }
+
+    private record Pending(GameProgressUpdateRequestDto request, Sinks.Empty<Void> done) {
+    }
+
+    private static final class Lane {
+        final String characterId;
+        final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Lane(String characterId) {
+            this.characterId = characterId;
+        }
+    }
+}
@@ -1,19 +1,27 @@
 package com.story.relay.service;
 
+import com.story.relay.config.AiServerProperties;
 import com.story.relay.dto.ImageGenerationRequestDto;
 import com.story.relay.dto.ImageGenerationResponseDto;
 import com.story.relay.dto.NovelStyleLearnRequestDto;
 import com.story.relay.dto.NovelStyleLearnResponseDto;
+import com.story.relay.metrics.RelayMetrics;
+import com.story.relay.resilience.AiCircuitBreakerRegistry;
+import com.story.relay.resilience.BulkheadRegistry;
+import com.story.relay.resilience.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -23,8 +31,15 @@ import java.util.UUID;
 public class ImageGenerationAiClient {
 
     private final WebClient imageGenerationAiWebClient;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final AiCircuitBreakerRegistry circuitBreakerRegistry;
+    private final RelayMetrics relayMetrics;
+    private final SingleFlight singleFlight;
     private final S3UploadService s3UploadService;
 
+    @Value("${ai-servers.image-generation.batch.parallelism:4}")
+    private int batchParallelism;
+
     /**
      * Learn novel style in AI-IMAGE server
      * Returns a reactive Mono for non-blocking execution
@@ -38,6 +53,8 @@ public class ImageGenerationAiClient {
                 .retrieve()
                 .bodyToMono(NovelStyleLearnResponseDto.class)
                 .timeout(Duration.ofSeconds(30))
+                .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.IMAGE_GENERATION))
+                .transform(relayMetrics.timed(AiServerProperties.IMAGE_GENERATION, "learnNovelStyle"))
                 .doOnSuccess(response -> {
                     if (response != null && response.getThumbnail_image_url() != null) {
                         log.info("Novel style learned successfully with thumbnail: {}", response.getThumbnail_image_url());
@@ -57,8 +74,11 @@ public class ImageGenerationAiClient {
                 .onErrorResume(e -> {
                     log.warn("Novel style learning failed, returning empty response for story: {}",
                         request.getStory_id());
-                    return Mono.just(NovelStyleLearnResponseDto.builder().build());
-                });
+                    return relayMetrics.fallback(AiServerProperties.IMAGE_GENERATION, "learnNovelStyle",
+                            () -> NovelStyleLearnResponseDto.builder().build());
+                })
+                .transform(bulkheadRegistry.get(AiServerProperties.IMAGE_GENERATION)::decorate)
+                .transform(singleFlight.coalesce("learnNovelStyle", String.valueOf(request.getStory_id())));
     }
 
     /**
@@ -66,6 +86,13 @@ public class ImageGenerationAiClient {
      * Returns a reactive Mono for non-blocking execution
      */
     public Mono<ImageGenerationResponseDto> generateImage(ImageGenerationRequestDto request) {
+        return generateImage(request, true);
+    }
+
+    /**
+     * @param mockOnError answer upstream failures with a placeholder image; when false the error is propagated
+     */
+    private Mono<ImageGenerationResponseDto> generateImage(ImageGenerationRequestDto request, boolean mockOnError) {
         if (request.getGenerateImage() != null && !request.getGenerateImage()) {
             log.info("Image generation skipped as per request.");
             return Mono.just(ImageGenerationResponseDto.builder().build());
@@ -82,21 +109,12 @@ public class ImageGenerationAiClient {
         log.debug("Request details: nodeText={}, situation={}, episodeTitle={}",
             request.getNodeText(), request.getSituation(), request.getEpisodeTitle());
 
-        // Build prompt from node information
-        StringBuilder promptBuilder = new StringBuilder();
-        promptBuilder.append(request.getEpisodeTitle()).append(": ");
-        promptBuilder.append(request.getNodeText());
-
-        if (request.getSituation() != null && !request.getSituation().isEmpty()) {
-            promptBuilder.append(". ").append(request.getSituation());
-        }
-
         // Build request for AI-IMAGE server
         String storyId = request.getStoryId() != null ? request.getStoryId() : "story_" + UUID.randomUUID().toString();
 
         Map<String, Object> aiImageRequest = new HashMap<>();
         aiImageRequest.put("story_id", storyId);
-        aiImageRequest.put("user_prompt", promptBuilder.toString());
+        aiImageRequest.put("user_prompt", buildPrompt(request));
         aiImageRequest.put("context_text", request.getNodeText());  // AI-IMAGE 서버는 context_text 사용
 
         // S3 presigned URL 전달 (백엔드에서 생성한 업로드용 URL)
@@ -115,10 +133,13 @@ public class ImageGenerationAiClient {
                 .retrieve()
                 .bodyToMono(Map.class)
                 .timeout(Duration.ofSeconds(30))
+                .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.IMAGE_GENERATION))
+                .transform(relayMetrics.timed(AiServerProperties.IMAGE_GENERATION, "generateImage"))
                 .doOnError(e -> log.error("AI-IMAGE server error during image generation: {}", e.getMessage(), e))
-                .onErrorResume(e -> {
+                .onErrorResume(e -> mockOnError, e -> {
                     log.warn("Image generation failed, returning mock image: {}", e.getMessage());
-                    return Mono.just(generateMockResponse(request));
+                    return relayMetrics.fallback(AiServerProperties.IMAGE_GENERATION, "generateImage",
+                            () -> generateMockResponse(request));
                 })
                 .map(response -> {
                     String imageUrl = (String) response.get("image_url");
@@ -137,7 +158,45 @@ public class ImageGenerationAiClient {
                             .fileKey(imageUrl) // Using image_url as fileKey for backwards compatibility
                             .generatedAt(Instant.now().toString())
                             .build();
-                });
+                })
+                .transform(bulkheadRegistry.get(AiServerProperties.IMAGE_GENERATION)::decorate);
+    }
+
+    /**
+     * Generate images for several story nodes with bounded concurrency
+     * Results are emitted in completion order; a failed item (upstream error or bulkhead rejection) yields
+     * a response carrying the error instead of a placeholder image, without aborting the batch
+     */
+    public Flux<ImageGenerationResponseDto> generateImages(List<ImageGenerationRequestDto> requests) {
+        log.info("Batch image generation: {} items, parallelism {}", requests.size(), batchParallelism);
+
+        return Flux.fromIterable(requests)
+                .flatMap(request -> generateImage(request, false)
+                        .onErrorResume(e -> {
+                            log.warn("Batch item failed for node {}: {}", request.getNodeId(), e.getMessage());
+                            return Mono.just(ImageGenerationResponseDto.builder()
+                                    .storyId(request.getStoryId())
+                                    .nodeId(request.getNodeId())
+                                    .generatedAt(Instant.now().toString())
+                                    .error(e.getMessage())
+                                    .build());
+                        }), batchParallelism)
+                .doOnComplete(() -> log.info("Batch image generation completed: {} items", requests.size()));
+    }
+
+    /**
+     * Build prompt from node information
+     */
+    static String buildPrompt(ImageGenerationRequestDto request) {
+        StringBuilder promptBuilder = new StringBuilder();
+        promptBuilder.append(request.getEpisodeTitle()).append(": ");
+        promptBuilder.append(request.getNodeText());
+
+        if (request.getSituation() != null && !request.getSituation().isEmpty()) {
+            promptBuilder.append(". ").append(request.getSituation());
+        }
+
+        return promptBuilder.toString();
     }
 
     /**
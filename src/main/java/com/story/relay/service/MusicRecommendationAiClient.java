@@ -1,7 +1,12 @@
 package com.story.relay.service;
 
+import com.story.relay.config.AiServerProperties;
 import com.story.relay.dto.MusicRequestDto;
 import com.story.relay.dto.MusicResponseDto;
+import com.story.relay.metrics.RelayMetrics;
+import com.story.relay.resilience.AiCircuitBreakerRegistry;
+import com.story.relay.resilience.BulkheadRegistry;
+import com.story.relay.resilience.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -11,6 +16,7 @@ import reactor.core.publisher.Mono;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -18,6 +24,11 @@ import java.util.Map;
 public class MusicRecommendationAiClient {
 
     private final WebClient musicAiWebClient;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final AiCircuitBreakerRegistry circuitBreakerRegistry;
+    private final RelayMetrics relayMetrics;
+    private final SingleFlight singleFlight;
+    private final MusicRecommendationCache musicRecommendationCache;
 
     /**
      * Recommend music based on scene description
@@ -27,6 +38,12 @@ public class MusicRecommendationAiClient {
         log.info("Requesting music recommendation for prompt: {}",
             request.getPrompt().length() > 50 ? request.getPrompt().substring(0, 50) + "..." : request.getPrompt());
 
+        Optional<MusicResponseDto> cached = musicRecommendationCache.get(request.getPrompt());
+        if (cached.isPresent()) {
+            log.info("Music recommendation served from cache: mood={}", cached.get().getMusic().getMood());
+            return Mono.just(cached.get());
+        }
+
         // Build request for AI-BGM server
         Map<String, String> bgmRequest = new HashMap<>();
         bgmRequest.put("prompt", request.getPrompt());
@@ -37,6 +54,8 @@ public class MusicRecommendationAiClient {
                 .retrieve()
                 .bodyToMono(MusicResponseDto.class)
                 .timeout(Duration.ofSeconds(10))
+                .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.MUSIC))
+                .transform(relayMetrics.timed(AiServerProperties.MUSIC, "recommendMusic"))
                 .doOnSuccess(response -> {
                     if (response != null && response.getMusic() != null) {
                         log.info("Music recommended successfully: mood={}, file={}",
@@ -44,11 +63,16 @@ public class MusicRecommendationAiClient {
                             response.getMusic().getFilename());
                     }
                 })
+                // Cache before onErrorResume so the default fallback response is never stored
+                .doOnNext(response -> musicRecommendationCache.put(request.getPrompt(), response))
                 .doOnError(e -> log.error("Failed to recommend music: {}", e.getMessage()))
                 .onErrorResume(e -> {
                     log.warn("Music recommendation failed, returning default response: {}", e.getMessage());
-                    return Mono.just(createDefaultResponse());
-                });
+                    return relayMetrics.fallback(AiServerProperties.MUSIC, "recommendMusic", this::createDefaultResponse);
+                })
+                .transform(bulkheadRegistry.get(AiServerProperties.MUSIC)::decorate)
+                .transform(singleFlight.coalesce("recommendMusic",
+                        MusicRecommendationCache.keyFor(request.getPrompt())));
     }
 
     /**
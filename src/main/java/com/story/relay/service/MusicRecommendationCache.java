@@ -0,0 +1,79 @@
+package com.story.relay.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.story.relay.dto.MusicResponseDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded cache of AI-BGM recommendations keyed by normalized scene prompt
+ * Many story nodes share near-identical prompts, so replays and sibling branches hit the cache
+ * Hit/miss/eviction counters are published as cache.* meters with cache=music-recommendation
+ */
+@Component
+@Slf4j
+public class MusicRecommendationCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Cache<String, MusicResponseDto> cache;
+    private final boolean enabled;
+
+    public MusicRecommendationCache(
+            MeterRegistry meterRegistry,
+            @Value("${ai-servers.music.cache.enabled:true}") boolean enabled,
+            @Value("${ai-servers.music.cache.max-size:1000}") long maxSize,
+            @Value("${ai-servers.music.cache.ttl:3600000}") long ttlMillis) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "music-recommendation");
+        log.info("Music recommendation cache initialized: enabled={}, maxSize={}, ttl={}ms", enabled, maxSize, ttlMillis);
+    }
+
+    public Optional<MusicResponseDto> get(String prompt) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(cache.getIfPresent(keyFor(prompt)));
+    }
+
+    /**
+     * Store an upstream recommendation
+     * Only real AI-BGM responses may be stored - never the default fallback response
+     */
+    public void put(String prompt, MusicResponseDto response) {
+        if (enabled && response != null && response.getMusic() != null) {
+            cache.put(keyFor(prompt), response);
+        }
+    }
+
+    /**
+     * Whitespace-collapsed, case-folded, SHA-256 hashed prompt
+     */
+    static String keyFor(String prompt) {
+        String normalized = WHITESPACE.matcher(prompt.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
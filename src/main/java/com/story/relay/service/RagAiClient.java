@@ -1,21 +1,34 @@
 package com.story.relay.service;
 
+import com.story.relay.config.AiServerProperties;
 import com.story.relay.dto.CharacterIndexRequestDto;
 import com.story.relay.dto.CharacterSetRequestDto;
 import com.story.relay.dto.ChatMessageRequestDto;
 import com.story.relay.dto.ChatMessageResponseDto;
 import com.story.relay.dto.GameProgressUpdateRequestDto;
 import com.story.relay.dto.NovelIndexRequestDto;
+import com.story.relay.metrics.RelayMetrics;
+import com.story.relay.resilience.AiCircuitBreakerRegistry;
+import com.story.relay.resilience.BulkheadRegistry;
+import com.story.relay.resilience.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,7 +42,14 @@ import java.util.Map;
 @Slf4j
 public class RagAiClient {
 
+    private static final List<String> NDJSON_TOKEN_FIELDS = List.of("token", "delta", "content");
+
     private final WebClient ragServerWebClient;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final AiCircuitBreakerRegistry circuitBreakerRegistry;
+    private final RelayMetrics relayMetrics;
+    private final SingleFlight singleFlight;
+    private final ConversationStore conversationStore;
 
     @Value("${ai-servers.rag.url:http://localhost:8002}")
     private String ragServerUrl;
@@ -61,6 +81,8 @@ public class RagAiClient {
                 .retrieve()
                 .bodyToMono(Map.class)
                 .timeout(Duration.ofMillis(timeout))
+                .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.RAG))
+                .transform(relayMetrics.timed(AiServerProperties.RAG, "indexCharacter"))
                 .map(response -> {
                     String status = (String) response.get("status");
                     return "character_set".equals(status);
@@ -72,7 +94,8 @@ public class RagAiClient {
                 })
                 .doOnError(e -> log.error("Failed to index character {}: {}",
                         request.getCharacterId(), e.getMessage()))
-                .onErrorReturn(false);
+                .onErrorResume(e -> relayMetrics.fallback(AiServerProperties.RAG, "indexCharacter", () -> false))
+                .transform(bulkheadRegistry.get(AiServerProperties.RAG)::decorate);
     }
 
     /**
@@ -99,6 +122,8 @@ public class RagAiClient {
                 .retrieve()
                 .bodyToMono(Map.class)
                 .timeout(Duration.ofMillis(timeout))
+                .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.RAG))
+                .transform(relayMetrics.timed(AiServerProperties.RAG, "indexNovel"))
                 .map(response -> {
                     String status = (String) response.get("status");
                     return "trained".equals(status);
@@ -110,12 +135,15 @@ public class RagAiClient {
                 })
                 .doOnError(e -> log.error("Failed to index novel {}: {}",
                         request.getStoryId(), e.getMessage()))
-                .onErrorReturn(false);
+                .onErrorResume(e -> relayMetrics.fallback(AiServerProperties.RAG, "indexNovel", () -> false))
+                .transform(bulkheadRegistry.get(AiServerProperties.RAG)::decorate)
+                .transform(singleFlight.coalesce("indexNovel",
+                        SingleFlight.keyOf(request.getStoryId(), request.getBucket(), request.getFileKey())));
     }
 
     /**
      * Send a message to character chatbot
-     * Calls /api/ai/chat with session_id and message
+     * Calls /api/ai/chat with session_id, message, the relay-kept conversation history and max_tokens
      * Returns a reactive Mono for non-blocking execution
      */
     public Mono<ChatMessageResponseDto> sendMessage(ChatMessageRequestDto request) {
@@ -123,10 +151,191 @@ public class RagAiClient {
         log.info("Story ID: {}", request.getStoryId());
         log.info("User message: {}", request.getUserMessage());
 
-        // Build request for /api/ai/chat
-        // session_id는 storyId로 설정 (벡터 스토어 매칭용)
-        // character_name은 캐릭터 페르소나 설정용
-        Map<String, String> chatRequest = new HashMap<>();
+        return conversationStore.prepare(request)
+                .flatMap(conversation -> {
+                    Map<String, Object> chatRequest = buildChatRequest(request, conversation);
+
+                    log.info("Sending to Python AI server - session_id: {}, character_name: {}, history: {} messages",
+                            chatRequest.get("session_id"), chatRequest.get("character_name"),
+                            conversation.history().size());
+
+                    return ragServerWebClient.post()
+                            .uri("/api/ai/chat")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .bodyValue(chatRequest)
+                            .retrieve()
+                            .bodyToMono(Map.class)
+                            .timeout(Duration.ofMillis(timeout))
+                            .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.RAG))
+                            .transform(relayMetrics.timed(AiServerProperties.RAG, "sendMessage"))
+                            .map(response -> {
+                                String reply = (String) response.get("reply");
+                                return ChatMessageResponseDto.builder()
+                                        .characterId(request.getCharacterId())
+                                        .aiMessage(reply)
+                                        .sources(List.of())
+                                        .timestamp(Instant.now().toString())
+                                        .build();
+                            })
+                            .doOnNext(response -> conversationStore.record(
+                                    conversation, request.getUserMessage(), response.getAiMessage()));
+                })
+                .doOnSuccess(response -> log.info("Received AI response: {}", response.getAiMessage()))
+                .doOnError(e -> log.error("RAG server error: {}", e.getMessage()))
+                .onErrorResume(e -> {
+                    log.error("Failed to get chat response, using fallback: {}", e.getMessage());
+                    return relayMetrics.fallback(AiServerProperties.RAG, "sendMessage",
+                            () -> generateFallbackResponse(request));
+                })
+                .switchIfEmpty(relayMetrics.fallback(AiServerProperties.RAG, "sendMessage",
+                        () -> generateFallbackResponse(request)))
+                .transform(bulkheadRegistry.get(AiServerProperties.RAG)::decorate);
+    }
+
+    /**
+     * Stream a character chatbot reply as Server-Sent Events
+     * Relays SSE, NDJSON ({"token": ...} per line) or chunked text output from /api/ai/chat token by
+     * token without buffering the body.
+     * If the RAG server answers with plain JSON, the whole reply is sent as a single token event.
+     * The stream always ends with a "done" event carrying the complete ChatMessageResponseDto.
+     */
+    public Flux<ServerSentEvent<Object>> streamMessage(ChatMessageRequestDto request) {
+        log.info("Streaming message to character: {} ({})", request.getCharacterName(), request.getCharacterId());
+
+        return conversationStore.prepare(request).flatMapMany(conversation -> {
+            Map<String, Object> chatRequest = buildChatRequest(request, conversation);
+            chatRequest.put("stream", true);
+            StringBuilder fullReply = new StringBuilder();
+
+            Flux<String> tokens = ragServerWebClient.post()
+                    .uri("/api/ai/chat")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON)
+                    .bodyValue(chatRequest)
+                    .exchangeToFlux(this::readChatTokens)
+                    .timeout(Duration.ofMillis(timeout))
+                    .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.RAG))
+                    .transform(relayMetrics.timedFlux(AiServerProperties.RAG, "streamMessage"))
+                    .doOnNext(fullReply::append)
+                    .doOnComplete(() -> conversationStore.record(conversation, request.getUserMessage(), fullReply.toString()))
+                    .doOnError(e -> log.error("RAG server streaming error: {}", e.getMessage()))
+                    .onErrorResume(e -> {
+                        relayMetrics.recordFallback(AiServerProperties.RAG, "streamMessage");
+                        log.error("Failed to stream chat response, using fallback: {}", e.getMessage());
+                        return fullReply.length() == 0
+                                ? Mono.just(generateFallbackResponse(request).getAiMessage())
+                                : Mono.<String>empty();
+                    });
+
+            return tokens
+                    .map(token -> ServerSentEvent.<Object>builder(token).event("token").build())
+                    .concatWith(Mono.fromSupplier(() -> ServerSentEvent.<Object>builder(
+                                    ChatMessageResponseDto.builder()
+                                            .characterId(request.getCharacterId())
+                                            .aiMessage(fullReply.toString())
+                                            .sources(List.of())
+                                            .timestamp(Instant.now().toString())
+                                            .build())
+                            .event("done")
+                            .build()))
+                    .doOnComplete(() -> log.info("Streamed AI response: {} characters", fullReply.length()));
+        }).transform(bulkheadRegistry.get(AiServerProperties.RAG)::decorate);
+    }
+
+    /**
+     * Read chat tokens according to the content type the RAG server chose
+     */
+    @SuppressWarnings("unchecked")
+    private Flux<String> readChatTokens(ClientResponse response) {
+        if (response.statusCode().isError()) {
+            return response.createException().flatMapMany(Flux::error);
+        }
+
+        MediaType contentType = response.headers().contentType().orElse(MediaType.APPLICATION_JSON);
+
+        if (MediaType.TEXT_EVENT_STREAM.isCompatibleWith(contentType)) {
+            return response.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                    .map(ServerSentEvent::data)
+                    .filter(data -> data != null && !"[DONE]".equals(data));
+        }
+
+        if (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            // Upstream did not stream - fall back to a single event with the whole reply
+            log.debug("RAG server returned a non-streaming response, sending single event");
+            return response.bodyToMono(Map.class)
+                    .mapNotNull(body -> (String) ((Map<String, Object>) body).get("reply"))
+                    .flux();
+        }
+
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            // One JSON object per line - relay only its token text
+            return response.bodyToFlux(new ParameterizedTypeReference<Map<String, Object>>() {})
+                    .mapNotNull(RagAiClient::ndjsonToken);
+        }
+
+        // Chunked text/plain: relay each chunk as it arrives, line breaks included
+        return decodeUtf8(response.bodyToFlux(DataBuffer.class));
+    }
+
+    /**
+     * Token text of one NDJSON line; lines without one (status, final summary) are skipped
+     */
+    static String ndjsonToken(Map<String, Object> line) {
+        for (String field : NDJSON_TOKEN_FIELDS) {
+            if (line.get(field) instanceof String token) {
+                return token;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decode chunks as UTF-8 without splitting a multi-byte character across two chunks
+     * (StringDecoder would instead buffer up to a delimiter and strip line breaks)
+     */
+    static Flux<String> decodeUtf8(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            byte[][] carry = {new byte[0]};
+            return body.map(buffer -> {
+                        byte[] bytes = new byte[carry[0].length + buffer.readableByteCount()];
+                        System.arraycopy(carry[0], 0, bytes, 0, carry[0].length);
+                        buffer.read(bytes, carry[0].length, buffer.readableByteCount());
+                        DataBufferUtils.release(buffer);
+                        int end = completeUtf8Length(bytes);
+                        carry[0] = Arrays.copyOfRange(bytes, end, bytes.length);
+                        return new String(bytes, 0, end, StandardCharsets.UTF_8);
+                    })
+                    .concatWith(Mono.fromSupplier(() -> new String(carry[0], StandardCharsets.UTF_8)))
+                    .filter(chunk -> !chunk.isEmpty())
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    /**
+     * Length of the prefix that ends on a character boundary
+     */
+    private static int completeUtf8Length(byte[] bytes) {
+        for (int i = bytes.length - 1; i >= 0 && i >= bytes.length - 4; i--) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                return bytes.length;
+            }
+            if (b >= 0xC0) {
+                int needed = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : 2;
+                return bytes.length - i >= needed ? bytes.length : i;
+            }
+        }
+        return bytes.length;
+    }
+
+    /**
+     * Build request body for /api/ai/chat
+     * session_id는 storyId로 설정 (벡터 스토어 매칭용)
+     * character_name은 캐릭터 페르소나 설정용
+     * conversation_history는 토큰 예산 안에서 잘라낸 최근 대화 (릴레이 보관)
+     */
+    private Map<String, Object> buildChatRequest(ChatMessageRequestDto request, ConversationStore.Conversation conversation) {
+        Map<String, Object> chatRequest = new HashMap<>();
 
         // storyId를 session_id로 사용 (Python AI 서버의 벡터 스토어 검색 키)
         String sessionId = (request.getStoryId() != null && !request.getStoryId().isEmpty())
@@ -154,32 +363,10 @@ public class RagAiClient {
         chatRequest.put("session_id", sessionId);
         chatRequest.put("character_name", characterName);
         chatRequest.put("message", request.getUserMessage());
+        chatRequest.put("conversation_history", conversation.history());
+        chatRequest.put("max_tokens", conversation.maxTokens());
 
-        log.info("Sending to Python AI server - session_id: {}, character_name: {}", sessionId, chatRequest.get("character_name"));
-
-        return ragServerWebClient.post()
-                .uri("/api/ai/chat")
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(chatRequest)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .timeout(Duration.ofMillis(timeout))
-                .map(response -> {
-                    String reply = (String) response.get("reply");
-                    return ChatMessageResponseDto.builder()
-                            .characterId(request.getCharacterId())
-                            .aiMessage(reply)
-                            .sources(List.of())
-                            .timestamp(Instant.now().toString())
-                            .build();
-                })
-                .doOnSuccess(response -> log.info("Received AI response: {}", response.getAiMessage()))
-                .doOnError(e -> log.error("RAG server error: {}", e.getMessage()))
-                .onErrorResume(e -> {
-                    log.error("Failed to get chat response, using fallback: {}", e.getMessage());
-                    return Mono.just(generateFallbackResponse(request));
-                })
-                .switchIfEmpty(Mono.just(generateFallbackResponse(request)));
+        return chatRequest;
     }
 
     /**
@@ -213,7 +400,7 @@ public class RagAiClient {
     /**
      * Build character description from CharacterIndexRequestDto
      */
-    private String buildCharacterDescription(CharacterIndexRequestDto request) {
+    static String buildCharacterDescription(CharacterIndexRequestDto request) {
         StringBuilder sb = new StringBuilder();
 
         if (request.getDescription() != null && !request.getDescription().isEmpty()) {
@@ -289,6 +476,8 @@ public class RagAiClient {
                 .retrieve()
                 .bodyToMono(Map.class)
                 .timeout(Duration.ofMillis(timeout))
+                .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.RAG))
+                .transform(relayMetrics.timed(AiServerProperties.RAG, "updateGameProgress"))
                 .map(response -> {
                     String status = (String) response.get("status");
                     return "updated".equals(status);
@@ -300,7 +489,8 @@ public class RagAiClient {
                 })
                 .doOnError(e -> log.error("Failed to update game progress for {}: {}",
                         request.getCharacterId(), e.getMessage()))
-                .onErrorReturn(false);
+                .onErrorResume(e -> relayMetrics.fallback(AiServerProperties.RAG, "updateGameProgress", () -> false))
+                .transform(bulkheadRegistry.get(AiServerProperties.RAG)::decorate);
     }
 
     /**
@@ -328,6 +518,8 @@ public class RagAiClient {
                 .retrieve()
                 .bodyToMono(Map.class)
                 .timeout(Duration.ofMillis(timeout))
+                .transformDeferred(circuitBreakerRegistry.operator(AiServerProperties.RAG))
+                .transform(relayMetrics.timed(AiServerProperties.RAG, "setCharacter"))
                 .map(response -> {
                     String status = (String) response.get("status");
                     return "character_set".equals(status);
@@ -339,7 +531,8 @@ public class RagAiClient {
                 })
                 .doOnError(e -> log.error("Failed to set character {}: {}",
                         request.getCharacterId(), e.getMessage()))
-                .onErrorReturn(false);
+                .onErrorResume(e -> relayMetrics.fallback(AiServerProperties.RAG, "setCharacter", () -> false))
+                .transform(bulkheadRegistry.get(AiServerProperties.RAG)::decorate);
     }
 
 }
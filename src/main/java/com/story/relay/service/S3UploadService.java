@@ -3,11 +3,31 @@ package com.story.relay.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ObjectCannedACL;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -15,6 +35,7 @@ import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 public class S3UploadService {
 
     private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
 
     @Value("${aws.s3.bucket}")
     private String bucketName;
@@ -22,9 +43,21 @@ public class S3UploadService {
     @Value("${aws.s3.region}")
     private String region;
 
+    @Value("${aws.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${aws.s3.multipart.part-size:8388608}")
+    private int partSize;
+
+    @Value("${aws.s3.multipart.part-concurrency:4}")
+    private int partConcurrency;
+
     // Maximum file size: 10MB
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB in bytes
 
+    // S3 rejects multipart parts smaller than 5MB (except the last one)
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
     /**
      * Upload image bytes to S3 and return the public URL
      * Validates file size and sets appropriate ACL
@@ -61,8 +94,7 @@ public class S3UploadService {
 
             s3Client.putObject(putObjectRequest, RequestBody.fromBytes(imageBytes));
 
-            String imageUrl = String.format("https://%s.s3.%s.amazonaws.com/%s",
-                bucketName, region, fileKey);
+            String imageUrl = objectUrl(fileKey);
 
             log.info("Image uploaded successfully: {}", imageUrl);
             return imageUrl;
@@ -73,6 +105,207 @@ public class S3UploadService {
         }
     }
 
+    /**
+     * Non-blocking variant of uploadImage for reactive pipelines
+     *
+     * @param fileKey File key (path) in S3 bucket
+     * @param imageBytes Image data as byte array
+     * @return Mono emitting the public URL of the uploaded image
+     */
+    public Mono<String> uploadImageAsync(String fileKey, byte[] imageBytes) {
+        if (imageBytes.length > MAX_FILE_SIZE) {
+            log.error("File size exceeds limit: {} bytes (max: {} bytes)",
+                imageBytes.length, MAX_FILE_SIZE);
+            return Mono.error(new RuntimeException(
+                String.format("File size exceeds limit: %d bytes (max: %d bytes)",
+                    imageBytes.length, MAX_FILE_SIZE)));
+        }
+        return upload(fileKey, Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(imageBytes)),
+                getContentType(fileKey));
+    }
+
+    /**
+     * Stream content to S3 without holding the whole object in memory
+     * Content up to the part size is sent with a single PutObject; anything larger switches to
+     * a multipart upload with up to part-concurrency parts in flight, so at most roughly
+     * (part-concurrency + 1) x part-size bytes are buffered. A failed multipart upload is aborted.
+     *
+     * @param fileKey File key (path) in S3 bucket
+     * @param content Object content; buffers are released as they are consumed
+     * @param contentType MIME type of the object
+     * @return Mono emitting the public URL of the uploaded object
+     */
+    public Mono<String> upload(String fileKey, Flux<DataBuffer> content, String contentType) {
+        int chunkSize = Math.max(partSize, MIN_PART_SIZE);
+
+        return chunk(content, chunkSize)
+                .switchOnFirst((first, parts) -> {
+                    if (first.isOnError()) {
+                        return Flux.<String>error(first.getThrowable());
+                    }
+                    if (first.hasValue() && first.get().remaining() == chunkSize) {
+                        return multipartUpload(fileKey, contentType, parts).flux();
+                    }
+                    // Empty content, or everything fit in a single partial chunk
+                    ByteBuffer body = first.hasValue() ? first.get() : ByteBuffer.allocate(0);
+                    return putObject(fileKey, contentType, body).flux();
+                })
+                .single()
+                .doOnSuccess(url -> log.info("Object uploaded successfully: {}", url))
+                .onErrorMap(e -> {
+                    log.error("Failed to upload object to S3: key={}, {}", fileKey, e.getMessage(), e);
+                    return new RuntimeException("S3 upload failed: " + e.getMessage(), e);
+                });
+    }
+
+    private Mono<String> putObject(String fileKey, String contentType, ByteBuffer body) {
+        log.info("Uploading object to S3: bucket={}, key={}, size={} bytes", bucketName, fileKey, body.remaining());
+
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(fileKey)
+                .contentType(contentType)
+                .acl(ObjectCannedACL.PRIVATE)
+                .build();
+
+        return Mono.fromFuture(() -> s3AsyncClient.putObject(putObjectRequest, AsyncRequestBody.fromByteBuffer(body)))
+                .thenReturn(objectUrl(fileKey));
+    }
+
+    private Mono<String> multipartUpload(String fileKey, String contentType, Flux<ByteBuffer> parts) {
+        CreateMultipartUploadRequest createRequest = CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(fileKey)
+                .contentType(contentType)
+                .acl(ObjectCannedACL.PRIVATE)
+                .build();
+
+        return Mono.fromFuture(() -> s3AsyncClient.createMultipartUpload(createRequest))
+                .flatMap(created -> {
+                    String uploadId = created.uploadId();
+                    log.info("Multipart upload started: bucket={}, key={}, uploadId={}", bucketName, fileKey, uploadId);
+
+                    return parts.index()
+                            .flatMapSequential(part -> uploadPart(fileKey, uploadId,
+                                    part.getT1().intValue() + 1, part.getT2()), partConcurrency, 1)
+                            .collectList()
+                            .flatMap(completedParts -> completeMultipartUpload(fileKey, uploadId, completedParts))
+                            .onErrorResume(e -> abortMultipartUpload(fileKey, uploadId).then(Mono.error(e)))
+                            .doOnCancel(() -> abortMultipartUpload(fileKey, uploadId).subscribe());
+                })
+                .thenReturn(objectUrl(fileKey));
+    }
+
+    private Mono<CompletedPart> uploadPart(String fileKey, String uploadId, int partNumber, ByteBuffer body) {
+        UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                .bucket(bucketName)
+                .key(fileKey)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength((long) body.remaining())
+                .build();
+
+        return Mono.fromFuture(() -> s3AsyncClient.uploadPart(uploadPartRequest, AsyncRequestBody.fromByteBuffer(body)))
+                .map(response -> CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag(response.eTag())
+                        .build())
+                .doOnSuccess(part -> log.debug("Uploaded part {} of {}", partNumber, fileKey));
+    }
+
+    private Mono<Void> completeMultipartUpload(String fileKey, String uploadId, List<CompletedPart> completedParts) {
+        CompleteMultipartUploadRequest completeRequest = CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(fileKey)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                .build();
+
+        return Mono.fromFuture(() -> s3AsyncClient.completeMultipartUpload(completeRequest))
+                .doOnSuccess(response -> log.info("Multipart upload completed: key={}, parts={}",
+                        fileKey, completedParts.size()))
+                .then();
+    }
+
+    private Mono<Void> abortMultipartUpload(String fileKey, String uploadId) {
+        AbortMultipartUploadRequest abortRequest = AbortMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(fileKey)
+                .uploadId(uploadId)
+                .build();
+
+        return Mono.fromFuture(() -> s3AsyncClient.abortMultipartUpload(abortRequest))
+                .doOnSuccess(response -> log.warn("Multipart upload aborted: key={}, uploadId={}", fileKey, uploadId))
+                .doOnError(e -> log.error("Failed to abort multipart upload {}: {}", uploadId, e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * Re-slice the incoming buffers into chunkSize ByteBuffers; only the last chunk may be shorter
+     * The first chunk grows with the content, so small objects never allocate a whole part; once
+     * a full chunk has been emitted the content is known to be large and later chunks are allocated
+     * at chunkSize up front.
+     */
+    static Flux<ByteBuffer> chunk(Flux<DataBuffer> content, int chunkSize) {
+        return Flux.defer(() -> {
+            byte[][] current = {new byte[0]};
+            int[] filled = {0};
+            boolean[] large = {false};
+
+            return content
+                    .concatMapIterable(buffer -> {
+                        List<ByteBuffer> full = new ArrayList<>(1);
+                        try {
+                            while (buffer.readableByteCount() > 0) {
+                                int length = Math.min(buffer.readableByteCount(), chunkSize - filled[0]);
+                                if (filled[0] + length > current[0].length) {
+                                    int grown = large[0] ? chunkSize
+                                            : Math.max(filled[0] + length, Math.min(chunkSize, current[0].length * 2));
+                                    current[0] = Arrays.copyOf(current[0], grown);
+                                }
+                                buffer.read(current[0], filled[0], length);
+                                filled[0] += length;
+                                if (filled[0] == chunkSize) {
+                                    full.add(ByteBuffer.wrap(current[0]));
+                                    current[0] = new byte[0];
+                                    filled[0] = 0;
+                                    large[0] = true;
+                                }
+                            }
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                        return full;
+                    })
+                    .concatWith(Mono.fromSupplier(() -> ByteBuffer.wrap(current[0], 0, filled[0]))
+                            .filter(ByteBuffer::hasRemaining));
+        });
+    }
+
+    /**
+     * ETag of an existing object (HEAD request, no body transfer)
+     *
+     * @param bucket Bucket name; null means the configured bucket
+     * @param fileKey File key (path) in S3 bucket
+     * @return Mono emitting the ETag without surrounding quotes
+     */
+    public Mono<String> objectETag(String bucket, String fileKey) {
+        return Mono.fromFuture(() -> s3AsyncClient.headObject(HeadObjectRequest.builder()
+                        .bucket(bucket != null ? bucket : bucketName)
+                        .key(fileKey)
+                        .build()))
+                .mapNotNull(HeadObjectResponse::eTag)
+                .map(eTag -> eTag.replace("\"", ""));
+    }
+
+    private String objectUrl(String fileKey) {
+        if (!endpoint.isBlank()) {
+            return String.format("%s/%s/%s", endpoint.replaceAll("/+$", ""), bucketName, fileKey);
+        }
+        return String.format("https://%s.s3.%s.amazonaws.com/%s", bucketName, region, fileKey);
+    }
+
     /**
      * Determine content type based on file extension
      *
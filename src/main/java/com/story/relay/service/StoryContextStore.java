@@ -0,0 +1,233 @@
+package com.story.relay.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.story.relay.dto.SubtreeRegenerationRequestDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-story analysis artifacts (summary, characters, gauges) remembered from /analyze and
+ * /finalize-analysis responses, keyed by the storyId of those requests
+ * regenerateSubtree and generateNextEpisode fill in whatever the caller did not send and, once all
+ * three artifacts are present, drop the novel context the AI server would otherwise re-read.
+ * Bounded by estimated size, evicted after idle-ttl without access.
+ * Hit rate: cache.gets{cache=story-context} and relay.story.context.lookups{operation, result=hit|miss|provided}
+ */
+@Component
+@Slf4j
+public class StoryContextStore {
+
+    private static final List<String> STORY_ID_FIELDS = List.of("storyId", "story_id");
+    private static final List<String> NOVEL_CONTEXT_FIELDS = List.of("novelContext", "novel_context", "novelText", "novel_text");
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final boolean dropNovelContext;
+    private final Cache<String, StoryContext> contexts;
+
+    public StoryContextStore(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${story-context.enabled:true}") boolean enabled,
+            @Value("${story-context.drop-novel-context:true}") boolean dropNovelContext,
+            @Value("${story-context.max-memory-bytes:33554432}") long maxMemoryBytes,
+            @Value("${story-context.idle-ttl:21600000}") long idleTtlMillis) {
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.dropNovelContext = dropNovelContext;
+        this.contexts = Caffeine.newBuilder()
+                .maximumWeight(maxMemoryBytes)
+                .weigher((String storyId, StoryContext context) -> context.weight())
+                .expireAfterAccess(Duration.ofMillis(idleTtlMillis))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, contexts, "story-context");
+        log.info("Story context store initialized: enabled={}, maxMemory={}B, idleTtl={}ms",
+                enabled, maxMemoryBytes, idleTtlMillis);
+    }
+
+    /**
+     * Remember the artifacts of an analysis response; fields missing from the response keep their
+     * previous value (finalize-analysis usually only refines the gauges)
+     */
+    public void remember(Map<String, Object> request, Map<String, Object> response) {
+        String storyId = storyId(request, response);
+        if (!enabled || storyId == null || response == null) {
+            return;
+        }
+        StoryContext update = new StoryContext(
+                text(response, "summary"),
+                json(response, "characters", "charactersJson"),
+                json(response, "gauges", "gaugesJson"));
+        if (update.isEmpty()) {
+            return;
+        }
+        contexts.asMap().merge(storyId, update, StoryContext::mergedWith);
+        log.debug("Story context stored for {}", storyId);
+    }
+
+    /**
+     * Fill summary/charactersJson/gaugesJson from the store and drop the novel context when complete
+     */
+    public SubtreeRegenerationRequestDto enrich(SubtreeRegenerationRequestDto request) {
+        if (!enabled || request.getStoryId() == null) {
+            return request;
+        }
+        if (request.getSummary() != null && request.getCharactersJson() != null && request.getGaugesJson() != null) {
+            count("regenerateSubtree", "provided");
+            return request;
+        }
+        StoryContext cached = lookup("regenerateSubtree", request.getStoryId());
+        if (cached == null) {
+            return request;
+        }
+        StoryContext merged = cached.mergedWith(
+                new StoryContext(request.getSummary(), request.getCharactersJson(), request.getGaugesJson()));
+        return request.toBuilder()
+                .summary(merged.summary())
+                .charactersJson(merged.charactersJson())
+                .gaugesJson(merged.gaugesJson())
+                .novelContext(dropNovelContext && merged.isComplete() ? null : request.getNovelContext())
+                .build();
+    }
+
+    /**
+     * Map-request variant for generateNextEpisode; returns the request itself when nothing changes
+     */
+    public Map<String, Object> enrich(String operation, Map<String, Object> request) {
+        String storyId = enabled ? storyId(request) : null;
+        if (storyId == null) {
+            return request;
+        }
+        StoryContext provided = new StoryContext(
+                text(request, "summary"),
+                json(request, "characters", "charactersJson"),
+                json(request, "gauges", "gaugesJson"));
+        if (provided.isComplete()) {
+            count(operation, "provided");
+            return request;
+        }
+        StoryContext cached = lookup(operation, storyId);
+        if (cached == null) {
+            return request;
+        }
+        StoryContext merged = cached.mergedWith(provided);
+        Map<String, Object> enriched = new HashMap<>(request);
+        putIfAbsent(enriched, "summary", merged.summary());
+        putIfAbsent(enriched, "charactersJson", merged.charactersJson());
+        putIfAbsent(enriched, "gaugesJson", merged.gaugesJson());
+        if (dropNovelContext && merged.isComplete()) {
+            NOVEL_CONTEXT_FIELDS.forEach(enriched::remove);
+        }
+        return enriched;
+    }
+
+    private StoryContext lookup(String operation, String storyId) {
+        StoryContext cached = contexts.getIfPresent(storyId);
+        count(operation, cached != null ? "hit" : "miss");
+        return cached;
+    }
+
+    private void count(String operation, String result) {
+        Counter.builder("relay.story.context.lookups")
+                .tag("operation", operation)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * String fields are taken as-is; structured ones (characters/gauges arrays) are re-serialized to JSON
+     */
+    private String json(Map<String, Object> source, String structuredField, String jsonField) {
+        Object json = source.get(jsonField);
+        if (json instanceof String string && !string.isBlank()) {
+            return string;
+        }
+        Object value = source.get(structuredField);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String string) {
+            return string.isBlank() ? null : string;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            log.warn("Story context field {} not serializable: {}", structuredField, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String text(Map<String, Object> source, String field) {
+        Object value = source.get(field);
+        return value == null || value.toString().isBlank() ? null : value.toString();
+    }
+
+    private static String storyId(Map<String, Object> request, Map<String, Object> response) {
+        String storyId = storyId(request);
+        return storyId != null ? storyId : storyId(response);
+    }
+
+    private static String storyId(Map<String, Object> source) {
+        if (source == null) {
+            return null;
+        }
+        for (String field : STORY_ID_FIELDS) {
+            Object value = source.get(field);
+            if (value != null && !value.toString().isBlank()) {
+                return value.toString();
+            }
+        }
+        return null;
+    }
+
+    private static void putIfAbsent(Map<String, Object> target, String field, String value) {
+        if (value != null) {
+            target.putIfAbsent(field, value);
+        }
+    }
+
+    record StoryContext(String summary, String charactersJson, String gaugesJson) {
+
+        boolean isEmpty() {
+            return summary == null && charactersJson == null && gaugesJson == null;
+        }
+
+        boolean isComplete() {
+            return summary != null && charactersJson != null && gaugesJson != null;
+        }
+
+        /**
+         * Non-null fields of other win
+         */
+        StoryContext mergedWith(StoryContext other) {
+            return new StoryContext(
+                    other.summary != null ? other.summary : summary,
+                    other.charactersJson != null ? other.charactersJson : charactersJson,
+                    other.gaugesJson != null ? other.gaugesJson : gaugesJson);
+        }
+
+        int weight() {
+            return 64 + 2 * (length(summary) + length(charactersJson) + length(gaugesJson));
+        }
+
+        private static int length(String value) {
+            return value != null ? value.length() : 0;
+        }
+    }
+}
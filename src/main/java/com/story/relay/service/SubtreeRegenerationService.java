@@ -0,0 +1,261 @@
+package com.story.relay.service;
+
+import com.story.relay.dto.SubtreeRegenerationEventDto;
+import com.story.relay.dto.SubtreeRegenerationRequestDto;
+import com.story.relay.dto.SubtreeRegenerationRequestDto.ParentNodeInfo;
+import com.story.relay.dto.SubtreeRegenerationResponseDto.ChoiceDto;
+import com.story.relay.dto.SubtreeRegenerationResponseDto.RegeneratedNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Level-by-level subtree regeneration
+ * Instead of one /regenerate-subtree call for the whole depth, each branch is regenerated one level
+ * at a time and every node is emitted as soon as its object closes in the level call's response, so
+ * the first choices arrive in seconds. A new leaf is queued for expansion right away, without waiting
+ * for the rest of its level; all pending branches share one work queue capped at parallelism calls.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SubtreeRegenerationService {
+
+    // Branches are scheduled from whichever thread their parent's call completed on
+    private static final Sinks.EmitFailureHandler EMIT_RETRY = Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1));
+
+    private final AnalysisAiClient analysisAiClient;
+
+    @Value("${ai-servers.analysis.subtree.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * Regenerate the subtree below request.parentNode, streaming node/error events and a final done event
+     */
+    public Flux<SubtreeRegenerationEventDto> regenerateStreaming(SubtreeRegenerationRequestDto request) {
+        log.info("Streaming subtree regeneration from node {} (depth {} -> {}), parallelism={}",
+                request.getParentNode().getNodeId(), request.getCurrentDepth(), request.getMaxDepth(), parallelism);
+
+        return Flux.defer(() -> {
+            AtomicInteger regenerated = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            Branch root = new Branch(request.getParentNode(), request.getCurrentDepth(),
+                    request.getPreviousChoices() != null ? request.getPreviousChoices() : List.of());
+
+            Sinks.Many<Branch> branches = Sinks.many().unicast().onBackpressureBuffer();
+            AtomicInteger open = new AtomicInteger(1);
+            branches.emitNext(root, EMIT_RETRY);
+
+            return branches.asFlux()
+                    .flatMap(branch -> regenerateBranch(request, branch, child -> {
+                                open.incrementAndGet();
+                                branches.emitNext(child, EMIT_RETRY);
+                            }, regenerated, failed)
+                            .doFinally(signal -> {
+                                // Children were counted before their parent finishes, so zero means the tree is done
+                                if (open.decrementAndGet() == 0) {
+                                    branches.emitComplete(EMIT_RETRY);
+                                }
+                            }), parallelism)
+                    .concatWith(Mono.fromSupplier(() -> {
+                        log.info("Streaming subtree regeneration completed: {} nodes, {} failed branches",
+                                regenerated.get(), failed.get());
+                        return SubtreeRegenerationEventDto.done(regenerated.get(), failed.get());
+                    }));
+        });
+    }
+
+    private Flux<SubtreeRegenerationEventDto> regenerateBranch(SubtreeRegenerationRequestDto root, Branch branch,
+                                                               Consumer<Branch> schedule,
+                                                               AtomicInteger regenerated, AtomicInteger failed) {
+        return Flux.defer(() -> {
+                    BranchAssembly assembly = new BranchAssembly(branch, root.getMaxDepth(), schedule, regenerated);
+                    return analysisAiClient.regenerateSubtreeNodes(levelRequest(root, branch))
+                            .filter(event -> SubtreeRegenerationEventDto.NODE.equals(event.getType()))
+                            .concatMapIterable(assembly::accept);
+                })
+                .onErrorResume(e -> {
+                    failed.incrementAndGet();
+                    log.warn("Regeneration of branch {} failed: {}", branch.parent().getNodeId(), e.getMessage());
+                    return Flux.just(SubtreeRegenerationEventDto.error(branch.parent().getNodeId(), e.getMessage()));
+                });
+    }
+
+    /**
+     * Reassembles one branch response from the decoder's node events, which arrive children first:
+     * nested nodes wait per nesting level until their parent closes, while top-level nodes - the whole
+     * answer of a one-level call - are emitted the moment their object closes
+     */
+    private final class BranchAssembly {
+
+        private final Branch branch;
+        private final int maxDepth;
+        private final Consumer<Branch> schedule;
+        private final AtomicInteger regenerated;
+
+        // waiting.get(level - 2) holds closed nodes of that nesting level whose parent is still open
+        private final List<List<RegeneratedNode>> waiting = new ArrayList<>();
+        private int topLevelIndex;
+
+        BranchAssembly(Branch branch, int maxDepth, Consumer<Branch> schedule, AtomicInteger regenerated) {
+            this.branch = branch;
+            this.maxDepth = maxDepth;
+            this.schedule = schedule;
+            this.regenerated = regenerated;
+        }
+
+        List<SubtreeRegenerationEventDto> accept(SubtreeRegenerationEventDto event) {
+            int level = event.getDepth();
+            RegeneratedNode node = withChildren(event.getNode(), takeWaiting(level + 1));
+            if (level > 1) {
+                waitingAt(level).add(node);
+                return List.of();
+            }
+            List<String> path = path(branch.previousChoices(), choiceTexts(branch.parent().getChoices()), topLevelIndex++);
+            return collect(new Pending(node, branch.parent().getNodeId(), branch.depth(), path),
+                    maxDepth, schedule, regenerated);
+        }
+
+        private List<RegeneratedNode> takeWaiting(int level) {
+            if (level - 2 >= waiting.size()) {
+                return List.of();
+            }
+            List<RegeneratedNode> children = waiting.get(level - 2);
+            waiting.set(level - 2, new ArrayList<>());
+            return children;
+        }
+
+        private List<RegeneratedNode> waitingAt(int level) {
+            while (waiting.size() <= level - 2) {
+                waiting.add(new ArrayList<>());
+            }
+            return waiting.get(level - 2);
+        }
+    }
+
+    /**
+     * Flatten a returned node and its descendants into events (iteratively, in case the upstream returned
+     * more than one level) and schedule every leaf above maxDepth for its next level
+     */
+    private static List<SubtreeRegenerationEventDto> collect(Pending first, int maxDepth,
+                                                             Consumer<Branch> schedule, AtomicInteger regenerated) {
+        List<SubtreeRegenerationEventDto> events = new ArrayList<>();
+        Deque<Pending> pending = new ArrayDeque<>();
+        pending.push(first);
+
+        while (!pending.isEmpty()) {
+            Pending current = pending.pollFirst();
+            RegeneratedNode node = current.node();
+            int depth = node.getDepth() != null ? node.getDepth() : current.parentDepth() + 1;
+
+            events.add(SubtreeRegenerationEventDto.node(flatCopy(node, current.parentId()), current.parentId(), depth));
+            regenerated.incrementAndGet();
+
+            List<String> choiceTexts = node.getChoices() != null
+                    ? node.getChoices().stream().map(ChoiceDto::getText).toList()
+                    : List.of();
+            if (node.getChildren() != null && !node.getChildren().isEmpty()) {
+                pushChildren(pending, node.getChildren(), node.getNodeId(), depth, choiceTexts, current.previousChoices());
+            } else if (depth < maxDepth) {
+                schedule.accept(new Branch(toParentInfo(node, depth, choiceTexts), depth, current.previousChoices()));
+            }
+        }
+        return events;
+    }
+
+    private static void pushChildren(Deque<Pending> pending, List<RegeneratedNode> children, String parentId,
+                                     int parentDepth, List<String> parentChoices, List<String> previousChoices) {
+        for (int i = children.size() - 1; i >= 0; i--) {
+            pending.addFirst(new Pending(children.get(i), parentId, parentDepth, path(previousChoices, parentChoices, i)));
+        }
+    }
+
+    /**
+     * Children are taken in order; the parent's i-th choice leads to its i-th child
+     */
+    private static List<String> path(List<String> previousChoices, List<String> parentChoices, int index) {
+        List<String> path = new ArrayList<>(previousChoices);
+        if (index < parentChoices.size() && parentChoices.get(index) != null) {
+            path.add(parentChoices.get(index));
+        }
+        return path;
+    }
+
+    private SubtreeRegenerationRequestDto levelRequest(SubtreeRegenerationRequestDto root, Branch branch) {
+        return SubtreeRegenerationRequestDto.builder()
+                .storyId(root.getStoryId())
+                .episodeTitle(root.getEpisodeTitle())
+                .episodeOrder(root.getEpisodeOrder())
+                .parentNode(branch.parent())
+                .currentDepth(branch.depth())
+                .maxDepth(Math.min(branch.depth() + 1, root.getMaxDepth()))
+                .novelContext(root.getNovelContext())
+                .previousChoices(branch.previousChoices())
+                .selectedGaugeIds(root.getSelectedGaugeIds())
+                .summary(root.getSummary())
+                .charactersJson(root.getCharactersJson())
+                .gaugesJson(root.getGaugesJson())
+                .build();
+    }
+
+    private static ParentNodeInfo toParentInfo(RegeneratedNode node, int depth, List<String> choiceTexts) {
+        RegeneratedNode.NodeDetails details = node.getDetails();
+        return ParentNodeInfo.builder()
+                .nodeId(node.getNodeId())
+                .text(node.getText())
+                .choices(choiceTexts)
+                .situation(details != null ? details.getSituation() : null)
+                .npcEmotions(details != null ? details.getNpcEmotions() : null)
+                .tags(details != null ? details.getTags() : null)
+                .depth(depth)
+                .build();
+    }
+
+    private static RegeneratedNode flatCopy(RegeneratedNode node, String parentId) {
+        return RegeneratedNode.builder()
+                .nodeId(node.getNodeId())
+                .text(node.getText())
+                .choices(node.getChoices())
+                .depth(node.getDepth())
+                .parentId(node.getParentId() != null ? node.getParentId() : parentId)
+                .details(node.getDetails())
+                .build();
+    }
+
+    private static RegeneratedNode withChildren(RegeneratedNode node, List<RegeneratedNode> children) {
+        if (children.isEmpty()) {
+            return node;
+        }
+        return RegeneratedNode.builder()
+                .nodeId(node.getNodeId())
+                .text(node.getText())
+                .choices(node.getChoices())
+                .depth(node.getDepth())
+                .parentId(node.getParentId())
+                .details(node.getDetails())
+                .children(children)
+                .build();
+    }
+
+    private static List<String> choiceTexts(List<String> choices) {
+        return choices != null ? choices : List.of();
+    }
+
+    private record Branch(ParentNodeInfo parent, int depth, List<String> previousChoices) {
+    }
+
+    private record Pending(RegeneratedNode node, String parentId, int parentDepth, List<String> previousChoices) {
+    }
+}
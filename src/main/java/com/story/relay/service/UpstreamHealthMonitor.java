@@ -0,0 +1,109 @@
+package com.story.relay.service;
+
+import com.story.relay.config.AiServerProperties;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Background prober for AI server health
+ * Probes every upstream on a schedule and keeps the latest result in memory,
+ * so /ai/health can answer from the snapshot without fanning out live HTTP calls
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UpstreamHealthMonitor {
+
+    private final AnalysisAiClient analysisAiClient;
+    private final ImageGenerationAiClient imageGenerationAiClient;
+    private final RagAiClient ragAiClient;
+    private final MusicRecommendationAiClient musicRecommendationAiClient;
+
+    private final Map<String, UpstreamHealth> snapshot = new ConcurrentHashMap<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * Scheduled refresh; skipped if the previous round is still running
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${ai-servers.health.interval:15000}")
+    public void scheduledRefresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            log.debug("Previous health probe still running, skipping");
+            return;
+        }
+        refresh()
+                .doFinally(signal -> refreshing.set(false))
+                .subscribe();
+    }
+
+    /**
+     * Probe all upstreams now and return the updated snapshot
+     */
+    public Mono<Map<String, UpstreamHealth>> refresh() {
+        return Flux.merge(
+                        probe(AiServerProperties.ANALYSIS, analysisAiClient::checkHealth),
+                        probe(AiServerProperties.IMAGE_GENERATION, imageGenerationAiClient::checkHealth),
+                        probe(AiServerProperties.RAG, ragAiClient::checkHealth),
+                        probe(AiServerProperties.MUSIC, musicRecommendationAiClient::checkHealth))
+                .then(Mono.fromSupplier(this::snapshot));
+    }
+
+    /**
+     * Latest known health per upstream (UNKNOWN until the first probe completes)
+     */
+    public Map<String, UpstreamHealth> snapshot() {
+        Map<String, UpstreamHealth> result = new LinkedHashMap<>();
+        for (String name : new String[]{AiServerProperties.ANALYSIS, AiServerProperties.IMAGE_GENERATION,
+                AiServerProperties.RAG, AiServerProperties.MUSIC}) {
+            result.put(name, snapshot.getOrDefault(name, UpstreamHealth.UNKNOWN));
+        }
+        return result;
+    }
+
+    private Mono<UpstreamHealth> probe(String name, Supplier<Mono<Boolean>> check) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return check.get()
+                    .defaultIfEmpty(false)
+                    .map(healthy -> {
+                        Instant now = Instant.now();
+                        UpstreamHealth previous = snapshot.get(name);
+                        UpstreamHealth current = UpstreamHealth.builder()
+                                .status(healthy ? "up" : "down")
+                                .latencyMs((System.nanoTime() - start) / 1_000_000)
+                                .lastCheckedAt(now)
+                                .lastSuccessAt(healthy ? now : (previous != null ? previous.getLastSuccessAt() : null))
+                                .build();
+                        snapshot.put(name, current);
+                        if (previous != null && !previous.getStatus().equals(current.getStatus())) {
+                            log.warn("AI server '{}' is now {}", name, current.getStatus());
+                        }
+                        return current;
+                    });
+        });
+    }
+
+    @Getter
+    @Builder
+    public static class UpstreamHealth {
+        static final UpstreamHealth UNKNOWN = UpstreamHealth.builder().status("unknown").build();
+
+        private final String status;        // up, down, unknown
+        private final Long latencyMs;
+        private final Instant lastCheckedAt;
+        private final Instant lastSuccessAt;
+    }
+}
@@ -0,0 +1,249 @@
+package com.story.relay.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.story.relay.dto.SubtreeRegenerationEventDto;
+import com.story.relay.dto.SubtreeRegenerationResponseDto;
+import com.story.relay.dto.SubtreeRegenerationResponseDto.ChoiceDto;
+import com.story.relay.dto.SubtreeRegenerationResponseDto.RegeneratedNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubtreeResponseDecoderTest {
+
+    private static final String NESTED = """
+            {"status":"success","message":"ok","extra":{"ignored":[1,{"a":2}]},"regeneratedNodes":[
+              {"id":"a","text":"첫 장면","depth":2,"parentId":"p",
+               "choices":[{"text":"문을 연다","tags":["brave"],"immediate_reaction":"삐걱"},{"text":"돌아선다"}],
+               "details":{"situation":"밤","npcEmotions":{"guard":"wary"},"tags":["dark"]},
+               "unknown":[[1,2],{"x":null}],
+               "children":[
+                 {"id":"a1","text":"문 너머","depth":3,"children":[{"id":"a1x","text":"깊은 곳","depth":4}]},
+                 {"id":"a2","text":"복도","depth":3,"children":[]}
+               ]},
+              {"id":"b","text":"둘째 장면","depth":2,"choices":null,"details":null}
+            ],"totalNodesRegenerated":5}
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void decodeTreeRebuildsNestedNodesWithChoicesAndDetails() {
+        SubtreeRegenerationResponseDto response = decoder(100, 16, DataSize.ofMegabytes(1))
+                .decodeTree(chunks(NESTED, 1))
+                .block();
+
+        assertThat(response.getStatus()).isEqualTo("success");
+        assertThat(response.getMessage()).isEqualTo("ok");
+        assertThat(response.getTotalNodesRegenerated()).isEqualTo(5);
+        assertThat(response.getRegeneratedNodes()).extracting(RegeneratedNode::getNodeId).containsExactly("a", "b");
+
+        RegeneratedNode a = response.getRegeneratedNodes().get(0);
+        assertThat(a.getText()).isEqualTo("첫 장면");
+        assertThat(a.getDepth()).isEqualTo(2);
+        assertThat(a.getParentId()).isEqualTo("p");
+        assertThat(a.getChoices()).extracting(ChoiceDto::getText).containsExactly("문을 연다", "돌아선다");
+        assertThat(a.getChoices().get(0).getTags()).containsExactly("brave");
+        assertThat(a.getChoices().get(0).getImmediateReaction()).isEqualTo("삐걱");
+        assertThat(a.getDetails().getSituation()).isEqualTo("밤");
+        assertThat(a.getDetails().getNpcEmotions()).containsEntry("guard", "wary");
+        assertThat(a.getDetails().getTags()).containsExactly("dark");
+        assertThat(a.getChildren()).extracting(RegeneratedNode::getNodeId).containsExactly("a1", "a2");
+        assertThat(a.getChildren().get(0).getChildren()).extracting(RegeneratedNode::getNodeId).containsExactly("a1x");
+        assertThat(a.getChildren().get(1).getChildren()).isEmpty();
+
+        RegeneratedNode b = response.getRegeneratedNodes().get(1);
+        assertThat(b.getChoices()).isNull();
+        assertThat(b.getDetails()).isNull();
+    }
+
+    @Test
+    void decodeNodesEmitsChildrenBeforeParentWithNestingLevel() {
+        List<SubtreeRegenerationEventDto> events = decoder(100, 16, DataSize.ofMegabytes(1))
+                .decodeNodes(chunks(NESTED, 7))
+                .collectList()
+                .block();
+
+        assertThat(events).extracting(SubtreeRegenerationEventDto::getType).containsExactly(
+                "node", "node", "node", "node", "node", "done");
+        List<SubtreeRegenerationEventDto> nodes = events.subList(0, 5);
+        assertThat(nodes).extracting(event -> event.getNode().getNodeId()).containsExactly("a1x", "a1", "a2", "a", "b");
+        assertThat(nodes).extracting(SubtreeRegenerationEventDto::getDepth).containsExactly(3, 2, 2, 1, 1);
+        assertThat(nodes).extracting(SubtreeRegenerationEventDto::getParentId).containsExactly("a1", "a", "a", null, null);
+        assertThat(nodes).allSatisfy(event -> assertThat(event.getNode().getChildren()).isNull());
+
+        RegeneratedNode a = nodes.get(3).getNode();
+        assertThat(a.getDepth()).isEqualTo(2);
+        assertThat(a.getParentId()).isEqualTo("p");
+        assertThat(a.getChoices()).extracting(ChoiceDto::getText).containsExactly("문을 연다", "돌아선다");
+        assertThat(a.getDetails().getNpcEmotions()).containsEntry("guard", "wary");
+
+        SubtreeRegenerationEventDto done = events.get(5);
+        assertThat(done.getStatus()).isEqualTo("success");
+        assertThat(done.getMessage()).isEqualTo("ok");
+        assertThat(done.getTotalNodesRegenerated()).isEqualTo(5);
+    }
+
+    @Test
+    void decodesChainUpToMaxDepth() {
+        String json = response(chain(32));
+
+        SubtreeRegenerationResponseDto response = decoder(100, 32, DataSize.ofMegabytes(1))
+                .decodeTree(chunks(json, 16))
+                .block();
+
+        RegeneratedNode node = response.getRegeneratedNodes().get(0);
+        int levels = 1;
+        while (!node.getChildren().isEmpty()) {
+            node = node.getChildren().get(0);
+            levels++;
+        }
+        assertThat(levels).isEqualTo(32);
+        assertThat(node.getNodeId()).isEqualTo("n31");
+        assertThat(response.getTotalNodesRegenerated()).isEqualTo(32);
+
+        StepVerifier.create(decoder(100, 32, DataSize.ofMegabytes(1)).decodeNodes(chunks(json, 16)))
+                .expectNextMatches(event -> "n31".equals(event.getNode().getNodeId()) && event.getDepth() == 32)
+                .expectNextCount(31)
+                .expectNextMatches(event -> SubtreeRegenerationEventDto.DONE.equals(event.getType()))
+                .verifyComplete();
+    }
+
+    @Test
+    void decodesWideLevelInDocumentOrder() {
+        String json = response(IntStream.range(0, 5000)
+                .mapToObj(i -> "{\"id\":\"w" + i + "\",\"text\":\"t\",\"choices\":[{\"text\":\"c\"}]}")
+                .collect(Collectors.joining(",")));
+
+        SubtreeRegenerationResponseDto response = decoder(5000, 4, DataSize.ofMegabytes(1))
+                .decodeTree(chunks(json, 8192))
+                .block();
+        assertThat(response.getRegeneratedNodes()).hasSize(5000);
+        assertThat(response.getRegeneratedNodes().get(4999).getNodeId()).isEqualTo("w4999");
+        assertThat(response.getTotalNodesRegenerated()).isEqualTo(5000);
+
+        List<SubtreeRegenerationEventDto> events = decoder(5000, 4, DataSize.ofMegabytes(1))
+                .decodeNodes(chunks(json, 8192))
+                .collectList()
+                .block();
+        assertThat(events).hasSize(5001);
+        assertThat(events.subList(0, 5000)).extracting(event -> event.getNode().getNodeId())
+                .containsExactlyElementsOf(IntStream.range(0, 5000).mapToObj(i -> "w" + i).toList());
+        assertThat(events.get(5000).getTotalNodesRegenerated()).isEqualTo(5000);
+    }
+
+    @Test
+    void rejectsTruncatedResponse() {
+        String truncated = NESTED.substring(0, NESTED.indexOf("\"b\""));
+
+        StepVerifier.create(decoder(100, 16, DataSize.ofMegabytes(1)).decodeTree(chunks(truncated, 5)))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(SubtreeDecodingException.class)
+                        .hasMessageStartingWith("Truncated subtree response after"))
+                .verify();
+
+        StepVerifier.create(decoder(100, 16, DataSize.ofMegabytes(1)).decodeNodes(chunks(truncated, 5)))
+                .expectNextCount(4)
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(SubtreeDecodingException.class)
+                        .hasMessageStartingWith("Truncated subtree response after"))
+                .verify();
+    }
+
+    @Test
+    void rejectsMalformedResponse() {
+        StepVerifier.create(decoder(100, 16, DataSize.ofMegabytes(1)).decodeTree(chunks("[{\"id\":\"a\"}]", 4)))
+                .expectErrorMessage("Subtree response must be a JSON object")
+                .verify();
+
+        StepVerifier.create(decoder(100, 16, DataSize.ofMegabytes(1)).decodeTree(chunks(response("") + "{}", 4)))
+                .expectErrorMessage("Unexpected content after subtree response")
+                .verify();
+
+        StepVerifier.create(decoder(100, 16, DataSize.ofMegabytes(1)).decodeTree(chunks("{\"status\":}", 4)))
+                .expectErrorSatisfies(e -> assertThat(e)
+                        .isInstanceOf(SubtreeDecodingException.class)
+                        .hasMessageStartingWith("Malformed subtree response"))
+                .verify();
+    }
+
+    @Test
+    void rejectsTooManyNodes() {
+        String json = response(IntStream.range(0, 11)
+                .mapToObj(i -> "{\"id\":\"w" + i + "\"}")
+                .collect(Collectors.joining(",")));
+
+        StepVerifier.create(decoder(10, 16, DataSize.ofMegabytes(1)).decodeTree(chunks(json, 64)))
+                .expectErrorMessage("Subtree has more than 10 nodes")
+                .verify();
+        StepVerifier.create(decoder(10, 16, DataSize.ofMegabytes(1)).decodeNodes(chunks(json, 64)))
+                .thenConsumeWhile(event -> true)
+                .expectErrorMessage("Subtree has more than 10 nodes")
+                .verify();
+    }
+
+    @Test
+    void rejectsTooDeepTree() {
+        String json = response(chain(9));
+
+        StepVerifier.create(decoder(100, 8, DataSize.ofMegabytes(1)).decodeTree(chunks(json, 64)))
+                .expectErrorMessage("Subtree deeper than 8 levels")
+                .verify();
+        StepVerifier.create(decoder(100, 8, DataSize.ofMegabytes(1)).decodeNodes(chunks(json, 64)))
+                .expectErrorMessage("Subtree deeper than 8 levels")
+                .verify();
+    }
+
+    @Test
+    void rejectsOversizedBody() {
+        String json = response(IntStream.range(0, 20)
+                .mapToObj(i -> "{\"id\":\"w" + i + "\",\"text\":\"" + "x".repeat(100) + "\"}")
+                .collect(Collectors.joining(",")));
+
+        StepVerifier.create(decoder(100, 16, DataSize.ofBytes(1024)).decodeTree(chunks(json, 256)))
+                .expectErrorMessage("Response exceeds 1024 bytes")
+                .verify();
+        StepVerifier.create(decoder(100, 16, DataSize.ofBytes(1024)).decodeNodes(chunks(json, 256)))
+                .thenConsumeWhile(event -> true)
+                .expectErrorMessage("Response exceeds 1024 bytes")
+                .verify();
+    }
+
+    private SubtreeResponseDecoder decoder(int maxNodes, int maxDepth, DataSize maxBytes) {
+        return new SubtreeResponseDecoder(objectMapper, maxNodes, maxDepth, maxBytes);
+    }
+
+    /**
+     * Single path n0 -> n1 -> ... of the given number of levels
+     */
+    private static String chain(int levels) {
+        StringBuilder json = new StringBuilder();
+        for (int i = 0; i < levels; i++) {
+            json.append("{\"id\":\"n").append(i).append("\",\"text\":\"t\",\"children\":[");
+        }
+        json.append("]}".repeat(levels));
+        return json.toString();
+    }
+
+    private static String response(String nodes) {
+        return "{\"status\":\"success\",\"regeneratedNodes\":[" + nodes + "]}";
+    }
+
+    private static Flux<DataBuffer> chunks(String json, int size) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return Flux.range(0, (bytes.length + size - 1) / size)
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(ByteBuffer.wrap(bytes, i * size,
+                        Math.min(size, bytes.length - i * size)).slice()));
+    }
+}
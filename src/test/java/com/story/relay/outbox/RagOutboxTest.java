@@ -0,0 +1,119 @@
+package com.story.relay.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.story.relay.dto.GameProgressUpdateRequestDto;
+import com.story.relay.service.GameProgressPipeline;
+import com.story.relay.service.RagAiClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RagOutboxTest {
+
+    private static final long SEGMENT_BYTES = 1 << 20;
+    private static final int MAX_RECORD_BYTES = 1 << 16;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final AtomicInteger callCount = new AtomicInteger();
+
+    @TempDir
+    Path dir;
+
+    private RagAiClient ragAiClient;
+
+    @BeforeEach
+    void setUp() {
+        ragAiClient = mock(RagAiClient.class);
+        // The second upstream call fails once
+        when(ragAiClient.updateGameProgress(any())).thenAnswer(invocation -> {
+            GameProgressUpdateRequestDto request = invocation.getArgument(0);
+            calls.add(request.getContent());
+            return Mono.just(callCount.incrementAndGet() != 2);
+        });
+    }
+
+    @Test
+    void retryAfterFailedSecondCallKeepsProgressInOrder() throws Exception {
+        seed("u1", "u2", "u3", "u4");
+
+        RagOutbox outbox = outbox(new GameProgressPipeline(ragAiClient, meterRegistry, 10, 2, 100));
+        outbox.start();
+        try {
+            awaitCheckpoint(outbox, 4);
+        } finally {
+            outbox.stop();
+        }
+
+        // Runs are capped at the pipeline's max-batch, so only the failed call is repeated
+        assertThat(calls).containsExactly("u1\n\nu2", "u3\n\nu4", "u3\n\nu4");
+        assertThat(meterRegistry.get("relay.outbox.entries").tag("outcome", "delivered").counter().count())
+                .isEqualTo(4);
+
+        try (WriteAheadLog reopened = new WriteAheadLog(dir, SEGMENT_BYTES, MAX_RECORD_BYTES)) {
+            assertThat(reopened.open()).isEmpty();
+        }
+    }
+
+    /**
+     * Write progress updates for one character straight to the log, so the outbox recovers them as one lane
+     */
+    private void seed(String... contents) throws Exception {
+        try (WriteAheadLog wal = new WriteAheadLog(dir, SEGMENT_BYTES, MAX_RECORD_BYTES)) {
+            wal.open();
+            for (String content : contents) {
+                ObjectNode stored = objectMapper.createObjectNode()
+                        .put("type", RagMutation.UPDATE_PROGRESS.name())
+                        .put("key", "character:npc-1");
+                stored.set("payload", objectMapper.valueToTree(GameProgressUpdateRequestDto.builder()
+                        .characterId("npc-1")
+                        .content(content)
+                        .build()));
+                wal.write(objectMapper.writeValueAsBytes(stored));
+            }
+            wal.sync();
+        }
+    }
+
+    private RagOutbox outbox(GameProgressPipeline pipeline) {
+        RagOutbox outbox = new RagOutbox(objectMapper, meterRegistry, ragAiClient, pipeline,
+                dir.toString(), SEGMENT_BYTES, MAX_RECORD_BYTES);
+        ReflectionTestUtils.setField(outbox, "maxPending", 100);
+        ReflectionTestUtils.setField(outbox, "batchSize", 50);
+        ReflectionTestUtils.setField(outbox, "concurrency", 2);
+        ReflectionTestUtils.setField(outbox, "drainIntervalMillis", 20L);
+        ReflectionTestUtils.setField(outbox, "maxAttempts", 3);
+        ReflectionTestUtils.setField(outbox, "backoffMillis", 10L);
+        ReflectionTestUtils.setField(outbox, "maxCycles", 5);
+        return outbox;
+    }
+
+    /**
+     * Wait until the drainer has settled everything up to seq; the checkpoint target moves last
+     */
+    private static void awaitCheckpoint(RagOutbox outbox, long seq) throws InterruptedException {
+        AtomicLong target = (AtomicLong) ReflectionTestUtils.getField(outbox, "checkpointTarget");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (target.get() < seq) {
+            assertThat(System.currentTimeMillis()).as("outbox drained in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.story.relay.service;
+
+import com.story.relay.dto.GameProgressUpdateRequestDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GameProgressPipelineTest {
+
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final AtomicInteger callCount = new AtomicInteger();
+
+    private RagAiClient ragAiClient;
+    private GameProgressPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        ragAiClient = mock(RagAiClient.class);
+        pipeline = new GameProgressPipeline(ragAiClient, new SimpleMeterRegistry(), 50, 2, 100);
+    }
+
+    @Test
+    void failedSecondCallFailsEverythingQueuedBehindIt() {
+        failCall(2);
+
+        List<Boolean> results = Flux.range(1, 6)
+                .flatMapSequential(i -> pipeline.submit(update("u" + i))
+                        .thenReturn(true)
+                        .onErrorReturn(false))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(calls).containsExactly("u1\n\nu2", "u3\n\nu4");
+        assertThat(results).containsExactly(true, true, false, false, false, false);
+    }
+
+    @Test
+    void cancelledUpdateIsNotSent() {
+        failCall(0);
+
+        CompletableFuture<Void> first = pipeline.submit(update("u1")).toFuture();
+        Disposable second = pipeline.submit(update("u2")).subscribe();
+        CompletableFuture<Void> third = pipeline.submit(update("u3")).toFuture();
+        second.dispose();
+
+        StepVerifier.create(Mono.fromFuture(CompletableFuture.allOf(first, third)))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+        assertThat(calls).containsExactly("u1\n\nu3");
+    }
+
+    @Test
+    void updatesAfterAFailureAreSentInOrder() {
+        failCall(1);
+
+        StepVerifier.create(pipeline.submit(update("u1"))).expectError().verify(Duration.ofSeconds(5));
+        StepVerifier.create(pipeline.submit(update("u2"))).expectComplete().verify(Duration.ofSeconds(5));
+
+        assertThat(calls).containsExactly("u1", "u2");
+    }
+
+    /**
+     * Upstream answers the given call (1-based) with failure and every other call with success
+     */
+    private void failCall(int failing) {
+        when(ragAiClient.updateGameProgress(any())).thenAnswer(invocation -> {
+            GameProgressUpdateRequestDto request = invocation.getArgument(0);
+            calls.add(request.getContent());
+            return Mono.just(callCount.incrementAndGet() != failing);
+        });
+    }
+
+    private static GameProgressUpdateRequestDto update(String content) {
+        return GameProgressUpdateRequestDto.builder()
+                .characterId("npc-1")
+                .content(content)
+                .build();
+    }
+}
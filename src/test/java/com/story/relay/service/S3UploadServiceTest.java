@@ -0,0 +1,216 @@
+package com.story.relay.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class S3UploadServiceTest {
+
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    private InMemoryS3 s3;
+    private S3UploadService service;
+
+    @BeforeEach
+    void setUp() {
+        s3 = new InMemoryS3();
+        service = new S3UploadService(null, s3);
+        ReflectionTestUtils.setField(service, "bucketName", "bucket");
+        ReflectionTestUtils.setField(service, "region", "ap-northeast-2");
+        ReflectionTestUtils.setField(service, "endpoint", "http://localhost:9000");
+        ReflectionTestUtils.setField(service, "partSize", PART_SIZE);
+        ReflectionTestUtils.setField(service, "partConcurrency", 2);
+    }
+
+    @Test
+    void smallContentUsesSinglePutObject() {
+        byte[] content = randomBytes(300_000);
+
+        StepVerifier.create(service.upload("images/a.png", buffers(content, 64 * 1024), "image/png"))
+                .expectNext("http://localhost:9000/bucket/images/a.png")
+                .verifyComplete();
+
+        assertThat(s3.objects.get("images/a.png")).isEqualTo(content);
+        assertThat(s3.multipartStarted).isZero();
+    }
+
+    @Test
+    void largeContentUsesMultipartUploadInOrder() {
+        byte[] content = randomBytes(2 * PART_SIZE + 123_456);
+
+        StepVerifier.create(service.upload("novels/big.txt", buffers(content, 1024 * 1024 + 7), "text/plain"))
+                .expectNext("http://localhost:9000/bucket/novels/big.txt")
+                .verifyComplete();
+
+        assertThat(s3.multipartStarted).isEqualTo(1);
+        assertThat(s3.completedPartNumbers).containsExactly(1, 2, 3);
+        assertThat(s3.objects.get("novels/big.txt")).isEqualTo(content);
+        assertThat(s3.openUploads).isEmpty();
+    }
+
+    @Test
+    void failedPartAbortsMultipartUpload() {
+        s3.failPart = 2;
+        byte[] content = randomBytes(3 * PART_SIZE);
+
+        StepVerifier.create(service.upload("novels/fail.txt", buffers(content, 1024 * 1024), "text/plain"))
+                .expectErrorMatches(e -> e.getMessage().startsWith("S3 upload failed"))
+                .verify();
+
+        assertThat(s3.aborted).hasSize(1);
+        assertThat(s3.openUploads).isEmpty();
+        assertThat(s3.objects).doesNotContainKey("novels/fail.txt");
+    }
+
+    @Test
+    void contentErrorAfterFirstPartAbortsMultipartUpload() {
+        Flux<DataBuffer> content = buffers(randomBytes(PART_SIZE + 10), 1024 * 1024)
+                .concatWith(Flux.error(new IllegalStateException("client went away")));
+
+        StepVerifier.create(service.upload("novels/broken.txt", content, "text/plain"))
+                .expectError()
+                .verify();
+
+        assertThat(s3.aborted).hasSize(1);
+        assertThat(s3.objects).doesNotContainKey("novels/broken.txt");
+    }
+
+    @Test
+    void chunkGrowsSmallContentOnlyToItsSize() {
+        List<ByteBuffer> chunks = S3UploadService.chunk(buffers(randomBytes(1000), 100), PART_SIZE)
+                .collectList()
+                .block();
+
+        assertThat(chunks).hasSize(1);
+        assertThat(chunks.get(0).remaining()).isEqualTo(1000);
+        assertThat(chunks.get(0).array().length).isLessThan(4096);
+    }
+
+    private static Flux<DataBuffer> buffers(byte[] content, int bufferSize) {
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < content.length; offset += bufferSize) {
+            int length = Math.min(bufferSize, content.length - offset);
+            byte[] slice = new byte[length];
+            System.arraycopy(content, offset, slice, 0, length);
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(slice));
+        }
+        return Flux.fromIterable(buffers);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Local S3 stand-in keeping objects and multipart uploads in memory
+     */
+    private static final class InMemoryS3 implements S3AsyncClient {
+
+        final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        final Map<String, Map<Integer, byte[]>> openUploads = new ConcurrentHashMap<>();
+        final Set<String> aborted = ConcurrentHashMap.newKeySet();
+        final List<Integer> completedPartNumbers = Collections.synchronizedList(new ArrayList<>());
+        volatile int multipartStarted;
+        volatile int failPart = -1;
+
+        @Override
+        public CompletableFuture<PutObjectResponse> putObject(PutObjectRequest request, AsyncRequestBody body) {
+            return read(body).thenApply(bytes -> {
+                objects.put(request.key(), bytes);
+                return PutObjectResponse.builder().eTag("\"put\"").build();
+            });
+        }
+
+        @Override
+        public CompletableFuture<CreateMultipartUploadResponse> createMultipartUpload(CreateMultipartUploadRequest request) {
+            multipartStarted++;
+            String uploadId = "upload-" + multipartStarted;
+            openUploads.put(uploadId, new ConcurrentHashMap<>());
+            return CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId(uploadId).build());
+        }
+
+        @Override
+        public CompletableFuture<UploadPartResponse> uploadPart(UploadPartRequest request, AsyncRequestBody body) {
+            if (request.partNumber() == failPart) {
+                return CompletableFuture.failedFuture(new IllegalStateException("part " + failPart + " rejected"));
+            }
+            return read(body).thenApply(bytes -> {
+                openUploads.get(request.uploadId()).put(request.partNumber(), bytes);
+                return UploadPartResponse.builder().eTag("\"part-" + request.partNumber() + "\"").build();
+            });
+        }
+
+        @Override
+        public CompletableFuture<CompleteMultipartUploadResponse> completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            Map<Integer, byte[]> parts = openUploads.remove(request.uploadId());
+            ByteArrayOutputStream object = new ByteArrayOutputStream();
+            for (CompletedPart part : request.multipartUpload().parts()) {
+                completedPartNumbers.add(part.partNumber());
+                object.writeBytes(parts.get(part.partNumber()));
+            }
+            objects.put(request.key(), object.toByteArray());
+            return CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build());
+        }
+
+        @Override
+        public CompletableFuture<AbortMultipartUploadResponse> abortMultipartUpload(AbortMultipartUploadRequest request) {
+            openUploads.remove(request.uploadId());
+            aborted.add(request.uploadId());
+            return CompletableFuture.completedFuture(AbortMultipartUploadResponse.builder().build());
+        }
+
+        @Override
+        public String serviceName() {
+            return "s3";
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private static CompletableFuture<byte[]> read(AsyncRequestBody body) {
+            return Flux.from(body)
+                    .reduce(new ByteArrayOutputStream(), (out, buffer) -> {
+                        ByteBuffer copy = buffer.duplicate();
+                        byte[] bytes = new byte[copy.remaining()];
+                        copy.get(bytes);
+                        out.writeBytes(bytes);
+                        return out;
+                    })
+                    .map(ByteArrayOutputStream::toByteArray)
+                    .toFuture();
+        }
+    }
+}